@@ -0,0 +1,38 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import java.util.Random;
+
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialLayoutEngine;
+
+/**
+ * Generates reproducible item catalogs for the benchmarks.
+ */
+class BenchmarkItems {
+
+    static final float DENSITY = 2.625f;
+    static final int CANVAS_WIDTH = 1080;
+    static final int CANVAS_HEIGHT = 1920;
+
+    final int[] sizes;
+    final int[] distances;
+
+    BenchmarkItems(int count) {
+        Random random = new Random(count);
+        sizes = new int[count];
+        distances = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = random.nextInt(5) + 1;
+            distances[i] = random.nextInt(count);
+        }
+    }
+
+    static RadialLayoutEngine engine() {
+        return new RadialLayoutEngine(DENSITY);
+    }
+
+    RadialLayout layout() {
+        return engine().layout(sizes, distances, null);
+    }
+
+}
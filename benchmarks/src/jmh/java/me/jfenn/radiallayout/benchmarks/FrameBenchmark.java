@@ -0,0 +1,120 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialAnimationStore;
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialMath;
+import me.jfenn.radiallayout.engine.TargetScales;
+
+/**
+ * Measures a nextFrame animation step over every item, as performed by onDraw,
+ * both for individual items and for a RadialAnimationStore. The "animating"
+ * variants move every item's target before each frame, so that no item ever
+ * settles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private Item[] items;
+    private RadialAnimationStore store;
+    private TargetScales scales;
+    private double radianOffset;
+
+    @Setup
+    public void setup() {
+        RadialLayout layout = new BenchmarkItems(itemCount).layout();
+        items = new Item[layout.size()];
+        for (int i = 0; i < items.length; i++)
+            items[i] = new Item(layout.getRadius(i), layout.getRadian(i));
+
+        scales = new TargetScales();
+        store = new RadialAnimationStore(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            store.add(0, 0, 0);
+            store.setTarget(i, layout.getRadius(i), layout.getRadian(i));
+            store.setTargetScales(i, scales, false);
+        }
+    }
+
+    @Benchmark
+    public boolean nextFrame() {
+        boolean needsFrame = false;
+        for (Item item : items) {
+            item.nextFrame();
+            if (!needsFrame)
+                needsFrame = item.needsFrame();
+        }
+
+        return needsFrame;
+    }
+
+    @Benchmark
+    public boolean nextFrameAnimating() {
+        radianOffset = -radianOffset + 0.01;
+        for (Item item : items)
+            item.targetRadian += radianOffset;
+
+        return nextFrame();
+    }
+
+    @Benchmark
+    public int storeStep() {
+        return store.step(RadialMath.EASING);
+    }
+
+    @Benchmark
+    public int storeStepAnimating() {
+        radianOffset = -radianOffset + 0.01;
+        for (int i = 0; i < store.size(); i++)
+            store.setTarget(i, items[i].targetRadius, items[i].targetRadian + radianOffset);
+
+        return store.step(RadialMath.EASING);
+    }
+
+    /**
+     * Mirrors the animated state of a BaseRadialItem.
+     */
+    private static class Item {
+
+        private float radius;
+        private double radian;
+        private float scale;
+        private float targetRadius;
+        private double targetRadian;
+        private TargetScales targetScales;
+
+        private Item(float radius, double radian) {
+            targetRadius = radius;
+            targetRadian = radian;
+            targetScales = new TargetScales();
+        }
+
+        private void nextFrame() {
+            radius = RadialMath.approach(radius, targetRadius, RadialMath.EASING);
+            radian = RadialMath.approach(radian, targetRadian, RadialMath.EASING);
+            scale = RadialMath.approach(scale, targetScales.next(scale), RadialMath.EASING);
+        }
+
+        private boolean needsFrame() {
+            return Math.abs(targetRadius - radius) > 0.01
+                    || Math.abs(targetRadian - radian) > 0.001
+                    || targetScales.needsFrame(scale);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialHitIndex;
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialMath;
+
+/**
+ * Measures finding the item underneath a touch event, as performed by onTouchEvent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitTestBenchmark {
+
+    private static final int TOUCH_COUNT = 256;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private RadialLayout layout;
+    private RadialHitIndex index;
+    private float itemRadius;
+    private float itemSeparation;
+    private float[] touchX;
+    private float[] touchY;
+    private int touch;
+
+    @Setup
+    public void setup() {
+        layout = new BenchmarkItems(itemCount).layout();
+        index = new RadialHitIndex(layout);
+        itemRadius = BenchmarkItems.engine().getItemRadius();
+        itemSeparation = BenchmarkItems.engine().getItemSeparation();
+
+        Random random = new Random(itemCount);
+        touchX = new float[TOUCH_COUNT];
+        touchY = new float[TOUCH_COUNT];
+        for (int i = 0; i < TOUCH_COUNT; i++) {
+            touchX[i] = random.nextInt(BenchmarkItems.CANVAS_WIDTH);
+            touchY[i] = random.nextInt(BenchmarkItems.CANVAS_HEIGHT);
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        touch = (touch + 1) % TOUCH_COUNT;
+        float eventX = touchX[touch], eventY = touchY[touch];
+        for (int i = 0; i < layout.size(); i++) {
+            float radius = layout.getRadius(i);
+            int rowRadius = RadialMath.getRowRadius(BenchmarkItems.DENSITY, layout.getRow(i), itemRadius, itemSeparation);
+            float itemX = (BenchmarkItems.CANVAS_WIDTH / 2) + RadialMath.getX(rowRadius, layout.getRadian(i), radius);
+            float itemY = (BenchmarkItems.CANVAS_HEIGHT / 2) + RadialMath.getY(rowRadius, layout.getRadian(i), radius);
+            if (eventX > itemX && eventX - itemX < radius * 2 && eventY > itemY && eventY - itemY < radius * 2)
+                return i;
+        }
+
+        return -1;
+    }
+
+    @Benchmark
+    public int index() {
+        touch = (touch + 1) % TOUCH_COUNT;
+        return index.find(touchX[touch] - (BenchmarkItems.CANVAS_WIDTH / 2), touchY[touch] - (BenchmarkItems.CANVAS_HEIGHT / 2));
+    }
+
+    @Benchmark
+    public RadialHitIndex buildIndex() {
+        return new RadialHitIndex(layout);
+    }
+
+}
@@ -0,0 +1,88 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialLayoutEngine;
+
+/**
+ * Measures the ring packing performed by Builder.applySynchronous.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LayoutBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private BenchmarkItems items;
+    private RadialLayoutEngine engine;
+    private float[] radii;
+
+    private RadialLayout layout;
+    private int[] addedSizes;
+    private int[] addedDistances;
+    private float[] addedRadii;
+
+    @Setup
+    public void setup() {
+        items = new BenchmarkItems(itemCount);
+        engine = BenchmarkItems.engine();
+
+        layout = items.layout();
+        radii = new float[itemCount];
+        for (int i = 0; i < layout.size(); i++)
+            radii[layout.getIndex(i)] = layout.getRadius(i);
+
+        // the same items, plus one in the outermost ring
+        addedSizes = Arrays.copyOf(items.sizes, itemCount + 1);
+        addedDistances = Arrays.copyOf(items.distances, itemCount + 1);
+        addedRadii = Arrays.copyOf(radii, itemCount + 1);
+        addedSizes[itemCount] = 1;
+        addedDistances[itemCount] = itemCount;
+    }
+
+    /**
+     * The first layout of a list, passed to setItems.
+     */
+    @Benchmark
+    public RadialLayout setItems() {
+        return engine.layout(items.sizes, items.distances, null);
+    }
+
+    /**
+     * A layout of items that already have a radius, passed to updateItems.
+     */
+    @Benchmark
+    public RadialLayout updateItems() {
+        return engine.layout(items.sizes, items.distances, radii);
+    }
+
+    /**
+     * A layout of the same items plus one in the outermost ring, packing every row again.
+     */
+    @Benchmark
+    public RadialLayout addOuterItem() {
+        return engine.layout(addedSizes, addedDistances, addedRadii);
+    }
+
+    /**
+     * A layout of the same items plus one in the outermost ring, reusing the unchanged rows of the previous layout.
+     */
+    @Benchmark
+    public RadialLayout addOuterItemIncremental() {
+        return engine.layout(addedSizes, addedDistances, addedRadii, layout);
+    }
+
+}
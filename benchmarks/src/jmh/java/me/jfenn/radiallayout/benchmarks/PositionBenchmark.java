@@ -0,0 +1,108 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialMath;
+
+/**
+ * Measures the per-item position math of BaseRadialItem.getX, getY and getMatrix
+ * for a whole frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PositionBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private RadialLayout layout;
+    private float itemRadius;
+    private float itemSeparation;
+    private float[] xs;
+    private float[] ys;
+
+    @Setup
+    public void setup() {
+        layout = new BenchmarkItems(itemCount).layout();
+        itemRadius = BenchmarkItems.engine().getItemRadius();
+        itemSeparation = BenchmarkItems.engine().getItemSeparation();
+
+        xs = new float[layout.size()];
+        ys = new float[layout.size()];
+        for (int i = 0; i < layout.size(); i++) {
+            int rowRadius = layout.getRowRadius(layout.getRow(i));
+            xs[i] = RadialMath.getX(rowRadius, layout.getRadian(i), layout.getRadius(i));
+            ys[i] = RadialMath.getY(rowRadius, layout.getRadian(i), layout.getRadius(i));
+        }
+    }
+
+    @Benchmark
+    public void positions(Blackhole blackhole) {
+        for (int i = 0; i < layout.size(); i++) {
+            int rowRadius = RadialMath.getRowRadius(BenchmarkItems.DENSITY, layout.getRow(i), itemRadius, itemSeparation);
+            blackhole.consume(RadialMath.getX(rowRadius, layout.getRadian(i), layout.getRadius(i)));
+            blackhole.consume(RadialMath.getY(rowRadius, layout.getRadian(i), layout.getRadius(i)));
+        }
+    }
+
+    @Benchmark
+    public void matrices(Blackhole blackhole) {
+        matrices(blackhole, 0, layout.size());
+    }
+
+    /**
+     * Only visits the rows that intersect the canvas, as onDraw does.
+     */
+    @Benchmark
+    public void culledMatrices(Blackhole blackhole) {
+        int totalRadius = (BenchmarkItems.CANVAS_WIDTH + BenchmarkItems.CANVAS_HEIGHT) / 4;
+        matrices(blackhole, layout.getRowStart(layout.getRowCount(-totalRadius)), layout.getRowStart(layout.getRowCount(totalRadius)));
+    }
+
+    /**
+     * Reads the positions that items cache until they move, as getMatrix does for items that are not animating.
+     */
+    @Benchmark
+    public void cachedMatrices(Blackhole blackhole) {
+        for (int i = 0; i < layout.size(); i++) {
+            float radius = layout.getRadius(i);
+            float scale = RadialMath.getEdgeScale(xs[i] + radius, ys[i] + radius, radius, 1, BenchmarkItems.CANVAS_WIDTH, BenchmarkItems.CANVAS_HEIGHT);
+            if (scale > 0) {
+                blackhole.consume((BenchmarkItems.CANVAS_WIDTH / 2) + xs[i]);
+                blackhole.consume((BenchmarkItems.CANVAS_HEIGHT / 2) + ys[i]);
+            }
+        }
+    }
+
+    private void matrices(Blackhole blackhole, int start, int end) {
+        for (int i = start; i < end; i++) {
+            float radius = layout.getRadius(i);
+            double radian = layout.getRadian(i);
+            int row = layout.getRow(i);
+
+            float scale = RadialMath.getEdgeScale(
+                    RadialMath.getX(RadialMath.getRowRadius(BenchmarkItems.DENSITY, row, itemRadius, itemSeparation), radian, radius) + radius,
+                    RadialMath.getY(RadialMath.getRowRadius(BenchmarkItems.DENSITY, row, itemRadius, itemSeparation), radian, radius) + radius,
+                    radius, 1, BenchmarkItems.CANVAS_WIDTH, BenchmarkItems.CANVAS_HEIGHT
+            );
+
+            if (scale > 0) {
+                blackhole.consume((BenchmarkItems.CANVAS_WIDTH / 2) + RadialMath.getX(RadialMath.getRowRadius(BenchmarkItems.DENSITY, row, itemRadius, itemSeparation), radian, radius));
+                blackhole.consume((BenchmarkItems.CANVAS_HEIGHT / 2) + RadialMath.getY(RadialMath.getRowRadius(BenchmarkItems.DENSITY, row, itemRadius, itemSeparation), radian, radius));
+            }
+        }
+    }
+
+}
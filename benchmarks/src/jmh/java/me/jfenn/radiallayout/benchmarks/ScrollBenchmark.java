@@ -0,0 +1,47 @@
+package me.jfenn.radiallayout.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialClock;
+import me.jfenn.radiallayout.engine.RadialScroller;
+
+/**
+ * Measures a drag and the fling that follows it with RadialScroller, stepped at
+ * 60 Hz until the layout has settled against its bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScrollBenchmark {
+
+    private static final long SAMPLE_NANOS = 8000000L;
+
+    @Benchmark
+    public float fling() {
+        RadialScroller scroller = new RadialScroller(BenchmarkItems.DENSITY);
+        scroller.setBound(BenchmarkItems.CANVAS_WIDTH);
+
+        long time = 0;
+        scroller.down(0, 0, time);
+        for (int i = 1; i <= 20; i++) {
+            time += SAMPLE_NANOS;
+            scroller.drag(i * 20, i * 10, time);
+        }
+
+        scroller.up(time);
+        while (scroller.isMoving()) {
+            time += RadialClock.FRAME_NANOS;
+            scroller.step(time);
+        }
+
+        return scroller.getX() + scroller.getY();
+    }
+
+}
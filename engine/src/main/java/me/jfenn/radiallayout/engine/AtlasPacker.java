@@ -0,0 +1,266 @@
+package me.jfenn.radiallayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * Packs squares into fixed-size pages using shelves: each shelf is a row of
+ * cells of a single height, rounded up to a step, so that squares of similar
+ * sizes share a shelf. Freed cells are kept on their shelf and reused by the
+ * next square that rounds up to the same height, so squares can be added and
+ * removed without moving any others. Once too much space has been wasted,
+ * the caller can reset() the packer and allocate everything again.
+ */
+public class AtlasPacker {
+
+    private int pageWidth;
+    private int pageHeight;
+    private int step;
+
+    private int pageCount;
+    private int[] pageShelfBottoms;
+
+    private int shelfCount;
+    private int[] shelfPages;
+    private int[] shelfYs;
+    private int[] shelfHeights;
+    private int[] shelfWidths;
+    private int[] shelfFreeSlots;
+
+    private int slotCount;
+    private int[] slotShelves;
+    private int[] slotXs;
+    private int[] slotSizes;
+    private int[] slotNextFree;
+
+    private long usedArea;
+    private long freeCellArea;
+    private int usedCount;
+
+    /**
+     * @param pageWidth  the width of each page
+     * @param pageHeight the height of each page
+     * @param step       the amount that the heights of shelves are rounded up to
+     */
+    public AtlasPacker(int pageWidth, int pageHeight, int step) {
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.step = Math.max(step, 1);
+
+        pageShelfBottoms = new int[1];
+        shelfPages = new int[8];
+        shelfYs = new int[8];
+        shelfHeights = new int[8];
+        shelfWidths = new int[8];
+        shelfFreeSlots = new int[8];
+        slotShelves = new int[16];
+        slotXs = new int[16];
+        slotSizes = new int[16];
+        slotNextFree = new int[16];
+    }
+
+    /**
+     * Removes every square and page, keeping the allocated space.
+     */
+    public void reset() {
+        pageCount = 0;
+        shelfCount = 0;
+        slotCount = 0;
+        usedArea = 0;
+        freeCellArea = 0;
+        usedCount = 0;
+    }
+
+    /**
+     * @return the largest square that can be allocated
+     */
+    public int getMaxSize() {
+        return Math.min(pageWidth, pageHeight);
+    }
+
+    /**
+     * Finds space for a square, on an existing page if possible.
+     *
+     * @param size the width and height of the square
+     * @return the slot of the square, or -1 if it is larger than a page
+     */
+    public int allocate(int size) {
+        int height = ((size + step - 1) / step) * step;
+        if (size <= 0 || height > getMaxSize())
+            return -1;
+
+        for (int shelf = 0; shelf < shelfCount; shelf++) {
+            if (shelfHeights[shelf] != height)
+                continue;
+
+            int slot = shelfFreeSlots[shelf];
+            if (slot >= 0) {
+                shelfFreeSlots[shelf] = slotNextFree[slot];
+                freeCellArea -= (long) height * height;
+                return use(slot, size);
+            }
+
+            if (shelfWidths[shelf] + height <= pageWidth)
+                return use(addSlot(shelf), size);
+        }
+
+        int page = 0;
+        while (page < pageCount && pageShelfBottoms[page] + height > pageHeight)
+            page++;
+
+        if (page == pageCount) {
+            if (pageCount == pageShelfBottoms.length)
+                pageShelfBottoms = Arrays.copyOf(pageShelfBottoms, pageCount * 2);
+
+            pageShelfBottoms[pageCount++] = 0;
+        }
+
+        if (shelfCount == shelfPages.length) {
+            int capacity = shelfCount * 2;
+            shelfPages = Arrays.copyOf(shelfPages, capacity);
+            shelfYs = Arrays.copyOf(shelfYs, capacity);
+            shelfHeights = Arrays.copyOf(shelfHeights, capacity);
+            shelfWidths = Arrays.copyOf(shelfWidths, capacity);
+            shelfFreeSlots = Arrays.copyOf(shelfFreeSlots, capacity);
+        }
+
+        int shelf = shelfCount++;
+        shelfPages[shelf] = page;
+        shelfYs[shelf] = pageShelfBottoms[page];
+        shelfHeights[shelf] = height;
+        shelfWidths[shelf] = 0;
+        shelfFreeSlots[shelf] = -1;
+        pageShelfBottoms[page] += height;
+
+        return use(addSlot(shelf), size);
+    }
+
+    private int addSlot(int shelf) {
+        if (slotCount == slotShelves.length) {
+            int capacity = slotCount * 2;
+            slotShelves = Arrays.copyOf(slotShelves, capacity);
+            slotXs = Arrays.copyOf(slotXs, capacity);
+            slotSizes = Arrays.copyOf(slotSizes, capacity);
+            slotNextFree = Arrays.copyOf(slotNextFree, capacity);
+        }
+
+        int slot = slotCount++;
+        slotShelves[slot] = shelf;
+        slotXs[slot] = shelfWidths[shelf];
+        shelfWidths[shelf] += shelfHeights[shelf];
+        return slot;
+    }
+
+    private int use(int slot, int size) {
+        slotSizes[slot] = size;
+        slotNextFree[slot] = -1;
+        usedArea += (long) size * size;
+        usedCount++;
+        return slot;
+    }
+
+    /**
+     * Frees the cell of a square, so that it can be reused by another of a similar size.
+     *
+     * @param slot the slot of the square
+     */
+    public void free(int slot) {
+        if (slot < 0 || slot >= slotCount || slotSizes[slot] == 0)
+            return;
+
+        usedArea -= (long) slotSizes[slot] * slotSizes[slot];
+        usedCount--;
+        slotSizes[slot] = 0;
+
+        int shelf = slotShelves[slot];
+        slotNextFree[slot] = shelfFreeSlots[shelf];
+        shelfFreeSlots[shelf] = slot;
+        freeCellArea += (long) shelfHeights[shelf] * shelfHeights[shelf];
+    }
+
+    /**
+     * @return the page that a square is on
+     */
+    public int getPage(int slot) {
+        return shelfPages[slotShelves[slot]];
+    }
+
+    /**
+     * @return the left edge of a square on its page
+     */
+    public int getX(int slot) {
+        return slotXs[slot];
+    }
+
+    /**
+     * @return the top edge of a square on its page
+     */
+    public int getY(int slot) {
+        return shelfYs[slotShelves[slot]];
+    }
+
+    /**
+     * @return the width and height of the cell that a square is in, which may be larger than the square
+     */
+    public int getCellSize(int slot) {
+        return shelfHeights[slotShelves[slot]];
+    }
+
+    /**
+     * @return the width and height of a square, or 0 if its slot is free
+     */
+    public int getSize(int slot) {
+        return slotSizes[slot];
+    }
+
+    /**
+     * @return the amount of pages that have been started
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return the amount of squares that are currently allocated
+     */
+    public int getUsedCount() {
+        return usedCount;
+    }
+
+    /**
+     * @return the total area of the squares that are currently allocated
+     */
+    public long getUsedArea() {
+        return usedArea;
+    }
+
+    /**
+     * @return the total area of the cells that have been freed and not yet reused
+     */
+    public long getFreeCellArea() {
+        return freeCellArea;
+    }
+
+    /**
+     * @return the total area of the shelves that have been started, which squares can be allocated in
+     */
+    public long getShelfArea() {
+        long area = 0;
+        for (int shelf = 0; shelf < shelfCount; shelf++)
+            area += (long) shelfHeights[shelf] * pageWidth;
+
+        return area;
+    }
+
+    /**
+     * Measures how much of the started shelves is not covered by squares, either
+     * because cells have been freed, squares are smaller than their shelf, or the
+     * shelf has not been filled yet.
+     *
+     * @return the fraction of the shelf area that is wasted, between 0 and 1
+     */
+    public float getFragmentation() {
+        long shelfArea = getShelfArea();
+        return shelfArea > 0 ? 1 - ((float) usedArea / shelfArea) : 0;
+    }
+
+}
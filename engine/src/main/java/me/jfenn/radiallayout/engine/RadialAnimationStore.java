@@ -0,0 +1,263 @@
+package me.jfenn.radiallayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * Holds the animated state of many items in parallel primitive arrays, so
+ * that a frame of every item can be stepped in a single loop. A running
+ * count of the items that are still animating is kept, so checking whether
+ * another frame is needed does not have to look at every item.
+ */
+public class RadialAnimationStore {
+
+    private static final float SCALE_REMOVED = 0.02f;
+
+    private int size;
+    private int generation;
+
+    private float[] radii;
+    private float[] targetRadii;
+    private double[] radians;
+    private double[] targetRadians;
+    private float[] scales;
+
+    /**
+     * Up to two target scales per item, stored at (slot * 2) and (slot * 2) + 1.
+     */
+    private float[] targetScales;
+    private byte[] targetScaleCounts;
+
+    private boolean[] removing;
+    private boolean[] removed;
+    private boolean[] animating;
+    private int animatingCount;
+    private int removedCount;
+
+    public RadialAnimationStore() {
+        this(16);
+    }
+
+    /**
+     * @param capacity the amount of items to allocate space for
+     */
+    public RadialAnimationStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        radii = new float[capacity];
+        targetRadii = new float[capacity];
+        radians = new double[capacity];
+        targetRadians = new double[capacity];
+        scales = new float[capacity];
+        targetScales = new float[capacity * 2];
+        targetScaleCounts = new byte[capacity];
+        removing = new boolean[capacity];
+        removed = new boolean[capacity];
+        animating = new boolean[capacity];
+    }
+
+    /**
+     * Removes all of the items from the store, keeping the allocated space.
+     */
+    public void clear() {
+        generation++;
+        size = 0;
+        animatingCount = 0;
+        removedCount = 0;
+    }
+
+    /**
+     * Adds an item to the store.
+     *
+     * @param radius the current radius (px) of the item
+     * @param radian the current angle of the item
+     * @param scale  the current scale of the item
+     * @return the slot of the item, used to access it later
+     */
+    public int add(float radius, double radian, float scale) {
+        if (size == radii.length)
+            grow(size * 2);
+
+        int slot = size++;
+        radii[slot] = radius;
+        targetRadii[slot] = radius;
+        radians[slot] = radian;
+        targetRadians[slot] = radian;
+        scales[slot] = scale;
+        targetScales[slot * 2] = scale;
+        targetScaleCounts[slot] = 1;
+        removing[slot] = false;
+        removed[slot] = false;
+        animating[slot] = false;
+        return slot;
+    }
+
+    private void grow(int capacity) {
+        radii = Arrays.copyOf(radii, capacity);
+        targetRadii = Arrays.copyOf(targetRadii, capacity);
+        radians = Arrays.copyOf(radians, capacity);
+        targetRadians = Arrays.copyOf(targetRadians, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        targetScales = Arrays.copyOf(targetScales, capacity * 2);
+        targetScaleCounts = Arrays.copyOf(targetScaleCounts, capacity);
+        removing = Arrays.copyOf(removing, capacity);
+        removed = Arrays.copyOf(removed, capacity);
+        animating = Arrays.copyOf(animating, capacity);
+    }
+
+    /**
+     * @return a number that changes whenever the store is cleared, invalidating any existing slots
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the amount of items in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the amount of items that will change if step() is called
+     */
+    public int getAnimatingCount() {
+        return animatingCount;
+    }
+
+    /**
+     * @return the amount of items that have finished being removed
+     */
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    public float getRadius(int slot) {
+        return radii[slot];
+    }
+
+    public double getRadian(int slot) {
+        return radians[slot];
+    }
+
+    public float getScale(int slot) {
+        return scales[slot];
+    }
+
+    /**
+     * @param slot the slot of the item
+     * @return whether the item will change if step() is called
+     */
+    public boolean isAnimating(int slot) {
+        return animating[slot];
+    }
+
+    /**
+     * @param slot the slot of the item
+     * @return whether the item has been scaled down to nothing after being removed
+     */
+    public boolean isRemoved(int slot) {
+        return removed[slot];
+    }
+
+    /**
+     * Sets the values that an item should animate to.
+     *
+     * @param slot   the slot of the item
+     * @param radius the radius (px) to animate to
+     * @param radian the angle to animate to
+     */
+    public void setTarget(int slot, float radius, double radian) {
+        targetRadii[slot] = radius;
+        targetRadians[slot] = radian;
+        update(slot);
+    }
+
+    /**
+     * Sets the scales that an item should animate through.
+     *
+     * @param slot     the slot of the item
+     * @param scales   the scales to animate through
+     * @param removing whether the item should be removed once it has scaled down
+     */
+    public void setTargetScales(int slot, TargetScales scales, boolean removing) {
+        int count = Math.min(scales.size(), 2);
+        for (int i = 0; i < count; i++)
+            targetScales[(slot * 2) + i] = scales.get(i);
+
+        targetScaleCounts[slot] = (byte) count;
+        this.removing[slot] = removing;
+        if (!removing && removed[slot]) {
+            removed[slot] = false;
+            removedCount--;
+        }
+
+        update(slot);
+    }
+
+    /**
+     * Advances every item by an amount of time.
+     *
+     * @param remaining the fraction of the distance to their targets that the items should keep,
+     *                  from {@link RadialClock#getRatio(float, float)} and {@link RadialMath#EASING}
+     * @return the amount of items that are still animating
+     */
+    public int step(float remaining) {
+        if (animatingCount == 0)
+            return 0;
+
+        float[] radii = this.radii, targetRadii = this.targetRadii, scales = this.scales, targetScales = this.targetScales;
+        double[] radians = this.radians, targetRadians = this.targetRadians;
+        byte[] targetScaleCounts = this.targetScaleCounts;
+        boolean[] animating = this.animating;
+
+        for (int slot = 0; slot < size; slot++) {
+            if (!animating[slot])
+                continue;
+
+            radii[slot] = targetRadii[slot] + ((radii[slot] - targetRadii[slot]) * remaining);
+            radians[slot] = targetRadians[slot] + ((radians[slot] - targetRadians[slot]) * remaining);
+
+            int scaleIndex = slot * 2;
+            if (targetScaleCounts[slot] > 1 && Math.abs(scales[slot] - targetScales[scaleIndex]) < 0.01) {
+                targetScales[scaleIndex] = targetScales[scaleIndex + 1];
+                targetScaleCounts[slot] = 1;
+            }
+
+            if (targetScaleCounts[slot] > 0)
+                scales[slot] = targetScales[scaleIndex] + ((scales[slot] - targetScales[scaleIndex]) * remaining);
+
+            if (removing[slot] && !removed[slot] && (targetScaleCounts[slot] == 0 || scales[slot] < SCALE_REMOVED)) {
+                removed[slot] = true;
+                removedCount++;
+            }
+
+            if (!needsFrame(slot)) {
+                animating[slot] = false;
+                animatingCount--;
+            }
+        }
+
+        return animatingCount;
+    }
+
+    /**
+     * Updates the animating state of an item after its targets have changed.
+     */
+    private void update(int slot) {
+        boolean needsFrame = needsFrame(slot);
+        if (needsFrame != animating[slot]) {
+            animating[slot] = needsFrame;
+            animatingCount += needsFrame ? 1 : -1;
+        }
+    }
+
+    private boolean needsFrame(int slot) {
+        int scaleIndex = slot * 2;
+        return Math.abs(targetRadii[slot] - radii[slot]) > 0.01
+                || Math.abs(targetRadians[slot] - radians[slot]) > 0.001
+                || targetScaleCounts[slot] > 1
+                || (targetScaleCounts[slot] > 0 && Math.abs(targetScales[scaleIndex] - scales[slot]) > 0.01)
+                || (removing[slot] && !removed[slot]);
+    }
+
+}
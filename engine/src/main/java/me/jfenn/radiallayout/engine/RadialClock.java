@@ -0,0 +1,69 @@
+package me.jfenn.radiallayout.engine;
+
+/**
+ * Converts frame timestamps into an amount of elapsed frames, so that
+ * animations that were written as "per frame" steps can advance by the time
+ * that has actually passed, regardless of the refresh rate of the display.
+ * Timestamps are passed in by the caller, so the clock can be driven by a
+ * Choreographer on a device or by fake timestamps on a JVM.
+ */
+public class RadialClock {
+
+    /**
+     * The length of the frames that the animations were originally written for (60 Hz).
+     */
+    public static final long FRAME_NANOS = 16666667L;
+
+    /**
+     * The longest gap between two frames that is still animated through, to stop
+     * animations from jumping to their end after a stall.
+     */
+    public static final float MAX_FRAMES = 6;
+
+    private long lastFrameNanos = -1;
+    private float frames;
+
+    /**
+     * Advances the clock to a new frame.
+     *
+     * @param frameTimeNanos the timestamp of the frame, in nanoseconds
+     * @return the amount of (60 Hz) frames that have passed since the previous frame
+     */
+    public float tick(long frameTimeNanos) {
+        if (lastFrameNanos < 0)
+            frames = 1;
+        else frames = Math.max(0, Math.min(MAX_FRAMES, (float) (frameTimeNanos - lastFrameNanos) / FRAME_NANOS));
+
+        lastFrameNanos = frameTimeNanos;
+        return frames;
+    }
+
+    /**
+     * Stops measuring time until the next frame, so that the first frame after
+     * a period of inactivity counts as a single frame.
+     */
+    public void reset() {
+        lastFrameNanos = -1;
+        frames = 0;
+    }
+
+    /**
+     * @return the amount of (60 Hz) frames that passed before the last call to tick()
+     */
+    public float getFrames() {
+        return frames;
+    }
+
+    /**
+     * Calculates how much of a value remains after it has been multiplied by a
+     * certain ratio once per frame for an amount of frames.
+     *
+     * @param ratioPerFrame the ratio that the value is multiplied by every frame
+     * @param frames        the amount of frames that have passed
+     * @return the ratio to multiply the value by
+     */
+    public static float getRatio(float ratioPerFrame, float frames) {
+        return (float) Math.pow(ratioPerFrame, frames);
+    }
+
+}
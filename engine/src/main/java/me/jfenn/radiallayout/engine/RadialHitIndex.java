@@ -0,0 +1,147 @@
+package me.jfenn.radiallayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * Finds the item underneath a point in O(log n) by looking up the row from the
+ * point's distance to the center, and then binary searching the angles of the
+ * items in that row.
+ */
+public class RadialHitIndex {
+
+    private static final double FULL_CIRCLE = Math.PI * 2;
+
+    private final RadialLayout layout;
+    private final float rowSpacing;
+
+    /**
+     * The first entry of each row, plus the total amount of entries.
+     */
+    private final int[] rowStarts;
+
+    /**
+     * The angles of the items, normalized to [0, 2pi) and sorted within each row.
+     */
+    private final double[] angles;
+
+    /**
+     * The position in the layout of each entry.
+     */
+    private final int[] positions;
+
+    /**
+     * Builds an index of the items in a layout.
+     *
+     * @param layout the layout to index
+     */
+    public RadialHitIndex(RadialLayout layout) {
+        this.layout = layout;
+        rowSpacing = layout.itemRadius * 2 + layout.itemSeparation;
+
+        int count = layout.size();
+        int rowCount = 0;
+        for (int i = 0; i < count; i++)
+            rowCount = Math.max(rowCount, layout.rows[i] + 1);
+
+        rowStarts = new int[rowCount + 1];
+        for (int i = 0; i < count; i++)
+            rowStarts[layout.rows[i] + 1]++;
+        for (int row = 0; row < rowCount; row++)
+            rowStarts[row + 1] += rowStarts[row];
+
+        // bucket the positions by row
+        positions = new int[count];
+        int[] rowEnds = Arrays.copyOf(rowStarts, rowCount);
+        for (int i = 0; i < count; i++)
+            positions[rowEnds[layout.rows[i]]++] = i;
+
+        // sort each row by angle, keeping the position order of equal angles
+        angles = new double[count];
+        long[] keys = new long[count];
+        for (int row = 0; row < rowCount; row++) {
+            int start = rowStarts[row], end = rowStarts[row + 1];
+            for (int i = start; i < end; i++) {
+                long angle = (long) ((normalize(layout.radians[positions[i]]) / FULL_CIRCLE) * Integer.MAX_VALUE);
+                keys[i] = (angle << 32) | (i - start);
+            }
+
+            Arrays.sort(keys, start, end);
+            for (int i = start; i < end; i++)
+                keys[i] = positions[start + (int) keys[i]];
+            for (int i = start; i < end; i++) {
+                positions[i] = (int) keys[i];
+                angles[i] = normalize(layout.radians[positions[i]]);
+            }
+        }
+    }
+
+    /**
+     * @return the layout that this index was built from
+     */
+    public RadialLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Finds the item whose circle contains a point.
+     *
+     * @param x the x coordinate of the point, relative to the center of the layout
+     * @param y the y coordinate of the point, relative to the center of the layout
+     * @return the position of the item in the layout, or -1 if there is no item at the point
+     */
+    public int find(float x, float y) {
+        int rowCount = rowStarts.length - 1;
+        if (rowCount < 1)
+            return -1;
+
+        double distance = Math.sqrt((x * x) + (y * y));
+        int row = (int) Math.round(((distance / layout.density) - 12) / rowSpacing - 1);
+        double angle = normalize(Math.atan2(y, x));
+
+        for (int i = Math.max(0, row - 1); i <= Math.min(rowCount - 1, row + 1); i++) {
+            int position = findInRow(i, angle, x, y);
+            if (position >= 0)
+                return position;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Binary searches a row for the items on either side of an angle, and
+     * checks whether the point is inside either of them.
+     */
+    private int findInRow(int row, double angle, float x, float y) {
+        int start = rowStarts[row], end = rowStarts[row + 1], size = end - start;
+        if (size < 1)
+            return -1;
+
+        int low = start, high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (angles[middle] < angle)
+                low = middle + 1;
+            else high = middle;
+        }
+
+        int rowRadius = layout.getRowRadius(row);
+        for (int offset = -2; offset < 2 && offset < size; offset++) {
+            int entry = start + (((low - start + offset) % size) + size) % size;
+            int position = positions[entry];
+            double radian = layout.radians[position];
+            double differenceX = x - (rowRadius * Math.cos(radian));
+            double differenceY = y - (rowRadius * Math.sin(radian));
+            float radius = layout.radii[position];
+            if ((differenceX * differenceX) + (differenceY * differenceY) <= radius * radius)
+                return position;
+        }
+
+        return -1;
+    }
+
+    private static double normalize(double radian) {
+        double angle = radian % FULL_CIRCLE;
+        return angle < 0 ? angle + FULL_CIRCLE : angle;
+    }
+
+}
@@ -0,0 +1,151 @@
+package me.jfenn.radiallayout.engine;
+
+/**
+ * The flat result of a layout pass: one entry per item, ordered by distance
+ * from the center of the layout.
+ */
+public class RadialLayout {
+
+    final float density;
+    final float itemRadius;
+    final float itemSeparation;
+
+    final int[] indices;
+    final float[] radii;
+
+    /**
+     * the size and distance that each item was laid out with, so that the next layout can
+     * tell which of its items would be sorted into the same positions
+     */
+    final int[] sizes;
+    final int[] distances;
+    final int[] rows;
+    final double[] radians;
+    int maxRow;
+    int[] rowStarts;
+    int[] rowRadii;
+    int reusedRows;
+
+    RadialLayout(int size, float density, float itemRadius, float itemSeparation) {
+        this.density = density;
+        this.itemRadius = itemRadius;
+        this.itemSeparation = itemSeparation;
+        indices = new int[size];
+        radii = new float[size];
+        sizes = new int[size];
+        distances = new int[size];
+        rows = new int[size];
+        radians = new double[size];
+    }
+
+    /**
+     * @return the amount of items in the layout
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @param position the position of the item in the layout
+     * @return the index of the item in the arrays passed to the engine
+     */
+    public int getIndex(int position) {
+        return indices[position];
+    }
+
+    /**
+     * @param position the position of the item in the layout
+     * @return the radius of the item, in pixels
+     */
+    public float getRadius(int position) {
+        return radii[position];
+    }
+
+    /**
+     * @param position the position of the item in the layout
+     * @return the row that the item is placed in
+     */
+    public int getRow(int position) {
+        return rows[position];
+    }
+
+    /**
+     * @param position the position of the item in the layout
+     * @return the angle (in radians) of the item around the center of the layout
+     */
+    public double getRadian(int position) {
+        return radians[position];
+    }
+
+    /**
+     * Calculates the radius of every row once the rows have been assigned, including
+     * the row after the outermost one, so that they can be looked up while drawing.
+     */
+    void cacheRowRadii() {
+        rowRadii = new int[rowStarts.length];
+        for (int row = 0; row < rowRadii.length; row++)
+            rowRadii[row] = RadialMath.getRowRadius(density, row, itemRadius, itemSeparation);
+    }
+
+    /**
+     * @param row the index of the row
+     * @return the distance (px) between the center of the layout and the items in the row
+     */
+    public int getRowRadius(int row) {
+        if (row >= 0 && row < rowRadii.length)
+            return rowRadii[row];
+
+        return RadialMath.getRowRadius(density, row, itemRadius, itemSeparation);
+    }
+
+    /**
+     * @return the display density (pixels per dp) that the layout was calculated for
+     */
+    public float getDensity() {
+        return density;
+    }
+
+    /**
+     * @param row the index of the row, or one more than the outermost row
+     * @return the position of the first item in the row, or the amount of items if
+     * the row is after the outermost row
+     */
+    public int getRowStart(int row) {
+        return rowStarts[Math.min(row, rowStarts.length - 1)];
+    }
+
+    /**
+     * Counts the rows that are closer to the center of the layout than a certain
+     * distance. Since the rows are ordered by their radius, this is also the index
+     * of the first row at or beyond that distance.
+     *
+     * @param distance the distance (px) from the center of the layout
+     * @return the amount of rows with a smaller radius
+     */
+    public int getRowCount(float distance) {
+        int low = 0, high = rowStarts.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getRowRadius(middle) < distance)
+                low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the amount of rows that were copied from a previous layout instead of being packed again
+     */
+    public int getReusedRowCount() {
+        return reusedRows;
+    }
+
+    /**
+     * @return the index of the outermost row that contains items
+     */
+    public int getMaxRow() {
+        return maxRow;
+    }
+
+}
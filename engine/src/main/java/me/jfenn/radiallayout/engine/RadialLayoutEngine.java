@@ -0,0 +1,399 @@
+package me.jfenn.radiallayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * Packs items into rings around the center of the layout. This class only
+ * works with primitive sizes and distances, so it can run on any JVM.
+ */
+public class RadialLayoutEngine {
+
+    /**
+     * the most items without a radius that the rank of their size is counted for, rather than sorting every item
+     */
+    private static final int MAX_RANKED_ITEMS = 16;
+
+    private float density;
+    private float itemRadius;
+    private float itemRadiusVariation;
+    private float itemSeparation;
+
+    /**
+     * Creates a new layout engine with the default item dimensions.
+     *
+     * @param density the display density (pixels per dp)
+     */
+    public RadialLayoutEngine(float density) {
+        this.density = density;
+        itemRadius = 36;
+        itemRadiusVariation = 6;
+        itemSeparation = 8;
+    }
+
+    public RadialLayoutEngine withItemRadius(float radius) {
+        itemRadius = radius;
+        return this;
+    }
+
+    public RadialLayoutEngine withItemRadiusVariation(float variation) {
+        itemRadiusVariation = variation;
+        return this;
+    }
+
+    public RadialLayoutEngine withItemSeparation(float separation) {
+        itemSeparation = separation;
+        return this;
+    }
+
+    public float getDensity() {
+        return density;
+    }
+
+    public float getItemRadius() {
+        return itemRadius;
+    }
+
+    public float getItemSeparation() {
+        return itemSeparation;
+    }
+
+    /**
+     * Calculates the position of every item.
+     *
+     * @param sizes     the size of each item relative to the other items
+     * @param distances the distance of each item from the center relative to the other items
+     * @param radii     the current radius (px) of each item, or null to calculate all of them -
+     *                  only items with a radius of 0 or less are given a new radius
+     * @return the calculated positions, ordered by distance from the center
+     */
+    public RadialLayout layout(int[] sizes, int[] distances, float[] radii) {
+        return layout(sizes, distances, radii, null);
+    }
+
+    /**
+     * Calculates the position of every item, reusing the rows of a previous layout
+     * that would not be packed any differently. Since each row is packed from the
+     * items left over by the rows before it, only the rows from the first changed
+     * item outward have to be packed again. Likewise, the items that would be sorted
+     * into the same first positions as before are not sorted again.
+     *
+     * @param sizes     the size of each item relative to the other items
+     * @param distances the distance of each item from the center relative to the other items
+     * @param radii     the current radius (px) of each item, or null to calculate all of them -
+     *                  only items with a radius of 0 or less are given a new radius
+     * @param previous  the previous layout of the items, or null to pack every row
+     * @return the calculated positions, ordered by distance from the center
+     */
+    public RadialLayout layout(int[] sizes, int[] distances, float[] radii, RadialLayout previous) {
+        int count = sizes.length;
+        RadialLayout layout = new RadialLayout(count, density, itemRadius, itemSeparation);
+        if (count == 0) {
+            layout.rowStarts = new int[]{0, 0};
+            layout.cacheRowRadii();
+            return layout;
+        }
+
+        int sorted = getSortedPrefix(sizes, distances, radii, previous);
+        if (sorted > 0)
+            sortAfterPrefix(layout, sizes, distances, radii, previous, sorted);
+        else sort(layout, sizes, distances, radii);
+
+        for (int i = 0; i < count; i++) {
+            int index = layout.indices[i];
+            layout.sizes[i] = sizes[index];
+            layout.distances[i] = distances[index];
+        }
+
+        pack(layout, previous, getReusableRows(layout, previous));
+        return layout;
+    }
+
+    /**
+     * Sorts every item by its distance, and then by its size, and calculates the radius
+     * of any items that do not have one yet from the rank of their size.
+     */
+    private void sort(RadialLayout layout, int[] sizes, int[] distances, float[] radii) {
+        int count = sizes.length;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = sortKey(sizes[i], i); //sort small -> big
+
+        Arrays.sort(keys);
+
+        int[] indicesBySize = new int[count];
+        float[] radiiBySize = new float[count];
+        for (int i = 0; i < count; i++) {
+            int index = (int) keys[i];
+            float radius = radii != null ? radii[index] : 0;
+            if (radii == null || radius <= 0) //only update radius for new items, reduces memory usage & makes transition smoother
+                radius = getRadius(i, count);
+
+            indicesBySize[i] = index;
+            radiiBySize[i] = radius;
+            keys[i] = sortKey(distances[index], i); //sort small -> big, keeping the size order of equal distances
+        }
+
+        Arrays.sort(keys);
+
+        for (int i = 0; i < count; i++) {
+            int position = (int) keys[i];
+            layout.indices[i] = indicesBySize[position];
+            layout.radii[i] = radiiBySize[position];
+        }
+    }
+
+    /**
+     * Copies the first positions of a previous layout, which the items would be sorted
+     * into again, and only sorts the rest of the items after them.
+     *
+     * @param sorted the amount of positions to copy, from getSortedPrefix
+     */
+    private void sortAfterPrefix(RadialLayout layout, int[] sizes, int[] distances, float[] radii, RadialLayout previous, int sorted) {
+        int count = sizes.length;
+        boolean[] isSorted = new boolean[count];
+        for (int i = 0; i < sorted; i++) {
+            int index = previous.indices[i];
+            isSorted[index] = true;
+            layout.indices[i] = index;
+            layout.radii[i] = radii[index] > 0 ? radii[index] : getRadius(getSizeRank(sizes, index), count);
+        }
+
+        // the same two sorts as sort(), over the rest of the items only
+        int rest = count - sorted;
+        long[] keys = new long[rest];
+        for (int index = 0, i = 0; index < count; index++) {
+            if (!isSorted[index])
+                keys[i++] = sortKey(sizes[index], index);
+        }
+
+        Arrays.sort(keys);
+
+        int[] indicesBySize = new int[rest];
+        for (int i = 0; i < rest; i++) {
+            int index = (int) keys[i];
+            indicesBySize[i] = index;
+            keys[i] = sortKey(distances[index], i);
+        }
+
+        Arrays.sort(keys);
+
+        for (int i = 0; i < rest; i++) {
+            int index = indicesBySize[(int) keys[i]];
+            layout.indices[sorted + i] = index;
+            layout.radii[sorted + i] = radii[index] > 0 ? radii[index] : getRadius(getSizeRank(sizes, index), count);
+        }
+    }
+
+    /**
+     * Counts the positions at the start of a previous layout that the items would be sorted
+     * into again: the items at those positions must still have the same size and distance,
+     * and every other item must sort after them. Items are sorted by their distance, then
+     * their size, and then their index, so this only depends on their values and not on
+     * the previous items. Items without a radius need the rank of their size among every
+     * item, which is counted for each of them, so the items are sorted in full instead if
+     * there are too many of them.
+     *
+     * @return the amount of positions that can be copied, or 0 to sort every item
+     */
+    private static int getSortedPrefix(int[] sizes, int[] distances, float[] radii, RadialLayout previous) {
+        if (previous == null || radii == null)
+            return 0;
+
+        int count = sizes.length;
+        int unranked = 0;
+        for (int i = 0; i < count && unranked <= MAX_RANKED_ITEMS; i++) {
+            if (radii[i] <= 0)
+                unranked++;
+        }
+
+        if (unranked > MAX_RANKED_ITEMS)
+            return 0;
+
+        int sorted = 0, limit = Math.min(count, previous.size());
+        while (sorted < limit) {
+            int index = previous.indices[sorted];
+            if (index >= count || sizes[index] != previous.sizes[sorted] || distances[index] != previous.distances[sorted])
+                break;
+
+            sorted++;
+        }
+
+        if (sorted == 0)
+            return 0;
+
+        boolean[] isSorted = new boolean[count];
+        for (int i = 0; i < sorted; i++)
+            isSorted[previous.indices[i]] = true;
+
+        // find the first of the other items, which every copied position has to sort before
+        int first = -1;
+        for (int index = 0; index < count; index++) {
+            if (!isSorted[index] && (first < 0 || compare(sizes, distances, index, first) < 0))
+                first = index;
+        }
+
+        if (first >= 0) {
+            while (sorted > 0 && compare(sizes, distances, previous.indices[sorted - 1], first) > 0)
+                sorted--;
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Compares two items in the order that they are laid out in: by distance, then by size, and then by index.
+     */
+    private static int compare(int[] sizes, int[] distances, int index, int other) {
+        if (distances[index] != distances[other])
+            return distances[index] < distances[other] ? -1 : 1;
+        if (sizes[index] != sizes[other])
+            return sizes[index] < sizes[other] ? -1 : 1;
+
+        return index < other ? -1 : (index > other ? 1 : 0);
+    }
+
+    /**
+     * @return the position that an item would have if every item was sorted by its size, and then by its index
+     */
+    private static int getSizeRank(int[] sizes, int index) {
+        int rank = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] < sizes[index] || (sizes[i] == sizes[index] && i < index))
+                rank++;
+        }
+
+        return rank;
+    }
+
+    /**
+     * @return the radius (px) of a new item, which grows with the rank of its size
+     */
+    private float getRadius(int sizeRank, int count) {
+        return RadialMath.dpToPx(density, (itemRadius - (itemRadiusVariation * 2)) + (itemRadiusVariation * 2 * ((float) sizeRank / count)));
+    }
+
+    /**
+     * Counts the rows at the start of a previous layout that would be packed in
+     * exactly the same way. A row depends on the radii of its own items and of
+     * the item after it, which did not fit into the row, so it can only be reused
+     * if all of them are unchanged. The last row of the new layout has no item
+     * after it, so it can be reused as long as its own items are unchanged, which
+     * means that relayouting unchanged items reuses every row.
+     *
+     * @param layout   the layout to pack, whose radii have already been calculated
+     * @param previous the previous layout, or null
+     * @return the amount of rows that can be copied from the previous layout
+     */
+    private int getReusableRows(RadialLayout layout, RadialLayout previous) {
+        if (previous == null || previous.density != density || previous.itemRadius != itemRadius || previous.itemSeparation != itemSeparation)
+            return 0;
+
+        int count = Math.min(layout.size(), previous.size());
+        int unchanged = 0;
+        while (unchanged < count && layout.radii[unchanged] == previous.radii[unchanged])
+            unchanged++;
+
+        int rows = 0;
+        while (rows <= previous.maxRow) {
+            int rowEnd = previous.getRowStart(rows + 1);
+            if (rowEnd < unchanged || (rowEnd == unchanged && unchanged == layout.size()))
+                rows++;
+            else break;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Assigns the row and angle of each item in a layout whose indices and
+     * radii have already been calculated.
+     *
+     * @param layout     the layout to pack
+     * @param previous   the layout to copy the first rows from
+     * @param reusedRows the amount of rows to copy from the previous layout instead of packing them
+     */
+    private void pack(RadialLayout layout, RadialLayout previous, int reusedRows) {
+        float[] radii = layout.radii;
+        int[] rows = layout.rows;
+        double[] radians = layout.radians;
+        int count = radii.length;
+        int minSeparation = RadialMath.dpToPx(density, 8);
+        int separation = RadialMath.dpToPx(density, itemSeparation);
+
+        int size = 0;
+        if (reusedRows > 0) {
+            size = previous.getRowStart(reusedRows);
+            System.arraycopy(previous.rows, 0, rows, 0, size);
+            System.arraycopy(previous.radians, 0, radians, 0, size);
+            layout.maxRow = reusedRows - 1;
+        } else {
+            int circumference = RadialMath.getRowCircumference(density, 0, itemRadius, itemSeparation), usedCircumference = 0;
+            for (int i = 0; i < count; i++) {
+                if (usedCircumference + (radii[i] * 2) + (minSeparation * i) < circumference) {
+                    usedCircumference += (radii[i] * 2) + minSeparation;
+                    rows[i] = 0;
+                    size++;
+                } else break;
+            }
+
+            int padding = ((circumference - usedCircumference) / (size + 1)) + minSeparation;
+            double radius = RadialMath.getRowRadius(density, 0, itemRadius, itemSeparation);
+            radians[0] = -Math.PI / 2;
+            for (int i = 1; i < size; i++) {
+                double difference = radii[i - 1] + radii[i];
+                double cosine = ((2 * radius * radius) - (difference * difference)) / (2 * radius * radius);
+                radians[i] = radians[i - 1] + Math.acos(cosine) + (((double) padding / circumference) * 2 * Math.PI);
+            }
+
+            layout.maxRow = 0;
+        }
+
+        layout.reusedRows = reusedRows;
+        for (int row = Math.max(reusedRows, 1); true; row++) {
+            int rowStart = size;
+
+            if (rowStart == 0 || rowStart >= count)
+                break;
+            else layout.maxRow = row;
+
+            int rowSize = 0, rowCircumference = RadialMath.getRowCircumference(density, row, itemRadius, itemSeparation), rowUsedCircumference = 0;
+            for (int i = rowStart; i < count; i++) {
+                if (rowUsedCircumference + (radii[i] * 2) + (separation * row) < rowCircumference) {
+                    rowUsedCircumference += (radii[i] * 2) + separation;
+                    rows[i] = row;
+                    rowSize++;
+                } else break;
+            }
+
+            int rowPadding = ((rowCircumference - rowUsedCircumference) / (rowSize + 1)) + minSeparation;
+            radians[rowStart] = rowStart > 1 ? (radians[rowStart - 1] + radians[rowStart - 2]) / 2 : radians[rowStart - 1];
+
+            double rowRadius = RadialMath.getRowRadius(density, row, itemRadius, itemSeparation);
+            for (int i = rowStart; i < rowStart + rowSize; i++) {
+                double difference = radii[i - 1] + radii[i];
+                double cosine = ((2 * rowRadius * rowRadius) - (difference * difference)) / (2 * rowRadius * rowRadius);
+                radians[i] = radians[i - 1] + Math.acos(cosine) + (((double) rowPadding / rowCircumference) * 2 * Math.PI);
+            }
+
+            size += rowSize;
+        }
+
+        // rows are assigned in order, so the items of each row are next to each other
+        layout.rowStarts = new int[layout.maxRow + 2];
+        for (int i = 0; i < count; i++)
+            layout.rowStarts[rows[i] + 1]++;
+        for (int row = 0; row <= layout.maxRow; row++)
+            layout.rowStarts[row + 1] += layout.rowStarts[row];
+
+        layout.cacheRowRadii();
+    }
+
+    /**
+     * Packs a value and a position into a single long that sorts by value and
+     * then by position, so that sorting the keys is stable.
+     */
+    private static long sortKey(int value, int position) {
+        return ((long) value << 32) | (position & 0xFFFFFFFFL);
+    }
+
+}
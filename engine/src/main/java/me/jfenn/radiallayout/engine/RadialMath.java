@@ -0,0 +1,124 @@
+package me.jfenn.radiallayout.engine;
+
+/**
+ * Density-aware geometry shared by the layout engine and the view, without
+ * any dependency on the Android framework.
+ */
+public class RadialMath {
+
+    /**
+     * The fraction of the distance to their target that animated values keep every (60 Hz) frame.
+     */
+    public static final float EASING = 5f / 6;
+
+    /**
+     * Converts density pixels to regular pixels.
+     *
+     * @param density the display density (pixels per dp)
+     * @param dp      density pixels
+     * @return regular pixels
+     */
+    public static int dpToPx(float density, float dp) {
+        return (int) (density * dp);
+    }
+
+    /**
+     * Calculates the distance (in pixels) between the center of the layout and the
+     * center of the items in a row.
+     *
+     * @param density        the display density (pixels per dp)
+     * @param row            the index of the row
+     * @param itemRadius     the average radius of the items, in dp
+     * @param itemSeparation the minimum distance between items, in dp
+     * @return the radius of the row, in pixels
+     */
+    public static int getRowRadius(float density, int row, float itemRadius, float itemSeparation) {
+        return dpToPx(density, ((row + 1) * (itemRadius * 2 + itemSeparation)) + 12);
+    }
+
+    /**
+     * Calculates the circumference (in pixels) of a row.
+     *
+     * @param density        the display density (pixels per dp)
+     * @param row            the index of the row
+     * @param itemRadius     the average radius of the items, in dp
+     * @param itemSeparation the minimum distance between items, in dp
+     * @return the circumference of the row, in pixels
+     */
+    public static int getRowCircumference(float density, int row, float itemRadius, float itemSeparation) {
+        return (int) (2 * Math.PI * getRowRadius(density, row, itemRadius, itemSeparation));
+    }
+
+    /**
+     * Calculates the horizontal position of the left edge of an item, relative to the
+     * center of the layout.
+     *
+     * @param rowRadius the radius (px) of the row that the item is in
+     * @param radian    the angle of the item around the center of the layout
+     * @param radius    the radius (px) of the item
+     * @return the x coordinate of the item's left edge
+     */
+    public static float getX(int rowRadius, double radian, float radius) {
+        return (float) (rowRadius * Math.sin((Math.PI / 2) - radian)) - radius;
+    }
+
+    /**
+     * Calculates the vertical position of the top edge of an item, relative to the
+     * center of the layout.
+     *
+     * @param rowRadius the radius (px) of the row that the item is in
+     * @param radian    the angle of the item around the center of the layout
+     * @param radius    the radius (px) of the item
+     * @return the y coordinate of the item's top edge
+     */
+    public static float getY(int rowRadius, double radian, float radius) {
+        return (float) (rowRadius * Math.sin(radian)) - radius;
+    }
+
+    /**
+     * Calculates the scale to draw an item at, shrinking items that are close to the
+     * edge of the canvas.
+     *
+     * @param centerX      the x coordinate of the item's center, relative to the center of the canvas
+     * @param centerY      the y coordinate of the item's center, relative to the center of the canvas
+     * @param radius       the radius (px) of the item
+     * @param scale        the current scale of the item
+     * @param canvasWidth  the width of the canvas
+     * @param canvasHeight the height of the canvas
+     * @return the scale to draw the item at, or 0 if it should not be drawn
+     */
+    public static float getEdgeScale(float centerX, float centerY, float radius, float scale, int canvasWidth, int canvasHeight) {
+        float distance = (float) Math.sqrt(Math.pow(centerX, 2) + Math.pow(centerY, 2));
+        int totalRadius = (canvasWidth + canvasHeight) / 4;
+        if (distance < totalRadius)
+            return Math.min((float) (Math.sqrt(totalRadius - distance) / Math.sqrt(radius * 2)) * scale, scale);
+        else return 0;
+    }
+
+    /**
+     * Moves a value closer to its target.
+     *
+     * @param value     the current value
+     * @param target    the value to move towards
+     * @param remaining the fraction of the distance to the target that should remain, from
+     *                  {@link RadialClock#getRatio(float, float)} and {@link #EASING}
+     * @return the value of the next frame
+     */
+    public static float approach(float value, float target, float remaining) {
+        return target + ((value - target) * remaining);
+    }
+
+    /**
+     * Moves a value closer to its target.
+     *
+     * @param value     the current value
+     * @param target    the value to move towards
+     * @param remaining the fraction of the distance to the target that should remain, from
+     *                  {@link RadialClock#getRatio(float, float)} and {@link #EASING}
+     * @return the value of the next frame
+     */
+    public static double approach(double value, double target, float remaining) {
+        return target + ((value - target) * remaining);
+    }
+
+}
@@ -0,0 +1,376 @@
+package me.jfenn.radiallayout.engine;
+
+/**
+ * The scroll offset of a layout, moved by dragging and flinging it. The velocity
+ * of a fling is fitted to the touch samples of the last moments of the drag, it
+ * decays exponentially over the time that actually passes between frames, and any
+ * offset past the bounds is pulled back by a critically damped spring. A while
+ * after the layout has been let go, it springs back to the center.
+ *
+ * Timestamps are passed in by the caller, in the same way as for RadialClock, so
+ * that the scroller can be driven by touch events and a Choreographer on a device
+ * or by fake timestamps on a JVM.
+ */
+public class RadialScroller {
+
+    /**
+     * The time after the layout has been let go that it returns to the center.
+     */
+    public static final long RETURN_DELAY_NANOS = 2000000000L;
+
+    /**
+     * The rate (per second) that the velocity of a fling decays at.
+     */
+    static final float FRICTION = 4f;
+
+    /**
+     * The angular frequency (radians per second) of the spring that pulls the offset back within its bounds.
+     */
+    private static final float SPRING_FREQUENCY = 12f;
+
+    /**
+     * The fraction of the movement of the finger that the offset follows past its bounds.
+     */
+    private static final float OVERSCROLL_RESISTANCE = 0.5f;
+
+    private static final float MAX_VELOCITY_DP = 8000;
+    private static final float MIN_FLING_VELOCITY_DP = 50;
+    private static final float STOP_VELOCITY_DP = 10;
+    private static final float STOP_DISTANCE_PX = 0.5f;
+
+    /**
+     * The samples that the velocity of a fling is fitted to are taken from this long before the finger was lifted.
+     */
+    private static final long VELOCITY_WINDOW_NANOS = 100000000L;
+
+    /**
+     * If the finger has not moved for this long before it was lifted, the layout is not flung.
+     */
+    static final long VELOCITY_STALE_NANOS = 40000000L;
+
+    /**
+     * The longest step that the physics are advanced by at once, so that a long frame is
+     * split up instead of jumping past the bounds.
+     */
+    static final long MAX_STEP_NANOS = RadialClock.FRAME_NANOS;
+
+    private static final int SAMPLES = 20;
+
+    private float maxVelocity;
+    private float minFlingVelocity;
+    private float stopVelocity;
+
+    private float bound;
+    private Axis x = new Axis();
+    private Axis y = new Axis();
+
+    private boolean isDragging;
+    private boolean isFlinging;
+    private boolean isReturning;
+    private float downX, downY;
+    private float startX, startY;
+
+    private long lastStepNanos = -1;
+    private long returnNanos = -1;
+
+    private float[] sampleX = new float[SAMPLES];
+    private float[] sampleY = new float[SAMPLES];
+    private long[] sampleNanos = new long[SAMPLES];
+    private int sampleCount;
+    private int sampleEnd;
+
+    /**
+     * @param density the display density (pixels per dp) that velocities are scaled by
+     */
+    public RadialScroller(float density) {
+        maxVelocity = MAX_VELOCITY_DP * density;
+        minFlingVelocity = MIN_FLING_VELOCITY_DP * density;
+        stopVelocity = STOP_VELOCITY_DP * density;
+    }
+
+    /**
+     * Sets how far the offset can be scrolled from the center in each direction.
+     *
+     * @param bound the distance (px), or 0 or less if the layout can not be scrolled
+     */
+    public void setBound(float bound) {
+        this.bound = Math.max(bound, 0);
+    }
+
+    /**
+     * @return the horizontal offset (px) of the layout from the center
+     */
+    public float getX() {
+        return x.position;
+    }
+
+    /**
+     * @return the vertical offset (px) of the layout from the center
+     */
+    public float getY() {
+        return y.position;
+    }
+
+    /**
+     * @return the horizontal velocity (px per second) of the layout
+     */
+    public float getVelocityX() {
+        return x.velocity;
+    }
+
+    /**
+     * @return the vertical velocity (px per second) of the layout
+     */
+    public float getVelocityY() {
+        return y.velocity;
+    }
+
+    /**
+     * @return whether the layout is being dragged
+     */
+    public boolean isDragging() {
+        return isDragging;
+    }
+
+    /**
+     * @return whether the layout is flinging or springing back, and needs to be stepped on the next frame
+     */
+    public boolean isMoving() {
+        return isFlinging || isReturning;
+    }
+
+    /**
+     * @return the time (ns) that the layout will start returning to the center at, or -1 if it will not
+     */
+    public long getReturnNanos() {
+        return returnNanos;
+    }
+
+    /**
+     * Stops any fling or return when a finger touches the layout, and remembers where
+     * it touched so that a drag moves the layout relative to it.
+     *
+     * @param x         the x coordinate (px) of the finger
+     * @param y         the y coordinate (px) of the finger
+     * @param timeNanos the time of the touch
+     */
+    public void down(float x, float y, long timeNanos) {
+        this.x.velocity = 0;
+        this.y.velocity = 0;
+        isDragging = false;
+        isFlinging = false;
+        isReturning = false;
+        returnNanos = -1;
+        lastStepNanos = -1;
+
+        downX = x;
+        downY = y;
+        startX = this.x.position;
+        startY = this.y.position;
+        sampleCount = 0;
+        addSample(x, y, timeNanos);
+    }
+
+    /**
+     * Moves the layout along with a finger that has moved since down(). Past the bounds,
+     * the layout only follows a fraction of the movement.
+     *
+     * @param x         the x coordinate (px) of the finger
+     * @param y         the y coordinate (px) of the finger
+     * @param timeNanos the time of the movement
+     */
+    public void drag(float x, float y, long timeNanos) {
+        isDragging = true;
+        this.x.position = resist(startX + x - downX, bound);
+        this.y.position = resist(startY + y - downY, bound);
+        addSample(x, y, timeNanos);
+    }
+
+    /**
+     * Lets go of the layout, flinging it with the velocity of the finger if it was
+     * dragged, and schedules it to return to the center after RETURN_DELAY_NANOS.
+     *
+     * @param timeNanos the time that the finger was lifted
+     */
+    public void up(long timeNanos) {
+        if (isDragging) {
+            isDragging = false;
+            if (sampleCount > 0 && timeNanos - sampleNanos[(sampleEnd + SAMPLES - 1) % SAMPLES] <= VELOCITY_STALE_NANOS) {
+                x.velocity = clamp(getSampleVelocity(sampleX, timeNanos), maxVelocity);
+                y.velocity = clamp(getSampleVelocity(sampleY, timeNanos), maxVelocity);
+                if (Math.hypot(x.velocity, y.velocity) < minFlingVelocity) {
+                    x.velocity = 0;
+                    y.velocity = 0;
+                }
+            }
+
+            isFlinging = true;
+            lastStepNanos = timeNanos;
+        }
+
+        if (x.position != 0 || y.position != 0 || isFlinging)
+            returnNanos = timeNanos + RETURN_DELAY_NANOS;
+    }
+
+    /**
+     * Starts returning the layout to the center straight away, for example when a touch is cancelled.
+     */
+    public void returnToCenter() {
+        isDragging = false;
+        isFlinging = false;
+        isReturning = true;
+        returnNanos = -1;
+    }
+
+    /**
+     * Advances any fling or return to the time of a frame.
+     *
+     * @param frameTimeNanos the timestamp of the frame
+     * @return whether the offset of the layout has changed
+     */
+    public boolean step(long frameTimeNanos) {
+        if (returnNanos >= 0 && frameTimeNanos >= returnNanos && !isDragging)
+            returnToCenter();
+
+        if (!isMoving()) {
+            lastStepNanos = -1;
+            return false;
+        }
+
+        if (lastStepNanos < 0 || frameTimeNanos <= lastStepNanos) {
+            // the first frame of a return, or a frame from before the finger was lifted
+            if (lastStepNanos < 0)
+                lastStepNanos = frameTimeNanos;
+
+            return false;
+        }
+
+        long elapsed = Math.min(frameTimeNanos - lastStepNanos, (long) (RadialClock.MAX_FRAMES * RadialClock.FRAME_NANOS));
+        lastStepNanos = frameTimeNanos;
+
+        float previousX = x.position, previousY = y.position;
+        float bound = isReturning ? 0 : this.bound;
+        boolean isMoving = true;
+        while (elapsed > 0 && isMoving) {
+            float seconds = Math.min(elapsed, MAX_STEP_NANOS) / 1e9f;
+            elapsed -= MAX_STEP_NANOS;
+
+            boolean isMovingX = x.step(seconds, bound, stopVelocity);
+            boolean isMovingY = y.step(seconds, bound, stopVelocity);
+            isMoving = isMovingX || isMovingY;
+        }
+
+        if (!isMoving) {
+            isFlinging = false;
+            isReturning = false;
+            lastStepNanos = -1;
+        }
+
+        return x.position != previousX || y.position != previousY;
+    }
+
+    private void addSample(float x, float y, long timeNanos) {
+        sampleX[sampleEnd] = x;
+        sampleY[sampleEnd] = y;
+        sampleNanos[sampleEnd] = timeNanos;
+        sampleEnd = (sampleEnd + 1) % SAMPLES;
+        sampleCount = Math.min(sampleCount + 1, SAMPLES);
+    }
+
+    /**
+     * Fits a line to the samples from the end of the drag by least squares, so that the
+     * velocity is not thrown off by a single uneven touch event.
+     *
+     * @param positions the positions of the samples in one direction
+     * @param timeNanos the time that the finger was lifted
+     * @return the slope of the line, in px per second
+     */
+    private float getSampleVelocity(float[] positions, long timeNanos) {
+        int count = 0;
+        double sumT = 0, sumP = 0, sumTT = 0, sumTP = 0;
+        for (int i = 1; i <= sampleCount; i++) {
+            int index = (sampleEnd + SAMPLES - i) % SAMPLES;
+            long age = timeNanos - sampleNanos[index];
+            if (age > VELOCITY_WINDOW_NANOS)
+                break;
+
+            double t = -age / 1e9;
+            double p = positions[index];
+            sumT += t;
+            sumP += p;
+            sumTT += t * t;
+            sumTP += t * p;
+            count++;
+        }
+
+        double denominator = (count * sumTT) - (sumT * sumT);
+        if (count < 2 || denominator <= 0)
+            return 0;
+
+        return (float) (((count * sumTP) - (sumT * sumP)) / denominator);
+    }
+
+    /**
+     * @return the offset that is displayed while it is dragged to a position, following only part of the distance past the bound
+     */
+    private static float resist(float position, float bound) {
+        if (position > bound)
+            return bound + ((position - bound) * OVERSCROLL_RESISTANCE);
+        else if (position < -bound)
+            return -bound + ((position + bound) * OVERSCROLL_RESISTANCE);
+        else return position;
+    }
+
+    private static float clamp(float value, float max) {
+        return Math.max(-max, Math.min(max, value));
+    }
+
+    /**
+     * The position and velocity of the offset in one direction.
+     */
+    private static class Axis {
+
+        float position;
+        float velocity;
+
+        /**
+         * Advances the axis by an amount of time, decaying its velocity within the bound
+         * and springing it back to the bound outside of it.
+         *
+         * @param seconds      the time to advance by
+         * @param bound        the furthest distance from the center that the axis can rest at
+         * @param stopVelocity the speed (px per second) that the axis stops at
+         * @return whether the axis is still moving
+         */
+        boolean step(float seconds, float bound, float stopVelocity) {
+            float target = Math.max(-bound, Math.min(bound, position));
+            if (position != target) {
+                // critically damped: x(t) = (x0 + (v0 + wx0)t)e^(-wt)
+                float offset = position - target;
+                float change = velocity + (SPRING_FREQUENCY * offset);
+                float decay = (float) Math.exp(-SPRING_FREQUENCY * seconds);
+                position = target + ((offset + (change * seconds)) * decay);
+                velocity = (velocity - (SPRING_FREQUENCY * change * seconds)) * decay;
+
+                if (Math.abs(position - target) < STOP_DISTANCE_PX && Math.abs(velocity) < stopVelocity) {
+                    position = target;
+                    velocity = 0;
+                    return false;
+                }
+
+                return true;
+            }
+
+            if (Math.abs(velocity) < stopVelocity) {
+                velocity = 0;
+                return false;
+            }
+
+            float decay = (float) Math.exp(-FRICTION * seconds);
+            position += velocity * (1 - decay) / FRICTION;
+            velocity *= decay;
+            return true;
+        }
+    }
+
+}
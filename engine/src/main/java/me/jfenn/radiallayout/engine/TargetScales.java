@@ -0,0 +1,88 @@
+package me.jfenn.radiallayout.engine;
+
+/**
+ * A queue of (at most two) scales for an item to animate through, stored in a
+ * fixed array so that stepping through it does not allocate.
+ */
+public class TargetScales {
+
+    private final float[] targets = new float[2];
+    private int start;
+    private int size;
+
+    public TargetScales() {
+        set(1);
+    }
+
+    /**
+     * Replaces the queue with a single scale.
+     *
+     * @param target the scale to animate to
+     */
+    public void set(float target) {
+        targets[0] = target;
+        start = 0;
+        size = 1;
+    }
+
+    /**
+     * Replaces the queue with two scales to animate through in order.
+     *
+     * @param first the scale to animate to first
+     * @param then  the scale to animate to after the first has been reached
+     */
+    public void set(float first, float then) {
+        targets[0] = first;
+        targets[1] = then;
+        start = 0;
+        size = 2;
+    }
+
+    /**
+     * @return the amount of scales in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the index of the scale in the queue
+     * @return the scale at the index, where 0 is the scale currently being animated to
+     */
+    public float get(int index) {
+        return targets[start + index];
+    }
+
+    /**
+     * @return the scale currently being animated to
+     */
+    public float get() {
+        return targets[start];
+    }
+
+    /**
+     * Moves on to the next scale in the queue if the current one has been reached.
+     *
+     * @param scale the current scale
+     * @return the scale to animate to
+     */
+    public float next(float scale) {
+        if (size > 1 && Math.abs(scale - targets[start]) < 0.01) {
+            start++;
+            size--;
+        }
+
+        return targets[start];
+    }
+
+    /**
+     * Determines whether the scale still needs to be animated.
+     *
+     * @param scale the current scale
+     * @return whether calling next() will result in a different scale
+     */
+    public boolean needsFrame(float scale) {
+        return size > 0 && (size > 1 || Math.abs(targets[start] - scale) > 0.01);
+    }
+
+}
@@ -0,0 +1,230 @@
+package me.jfenn.radiallayout.engine;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the per-frame steps of the engine do not allocate once they have
+ * been warmed up, as any allocation in them would happen on every frame.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * the amount of times that the iterations are measured, as the JVM itself can allocate on
+     * the thread once in a while (such as when a method is compiled), so only the run that
+     * allocated the least is checked
+     */
+    private static final int RUNS = 5;
+
+    private com.sun.management.ThreadMXBean threads;
+    private long threadId;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void targetScalesNext() {
+        assertNoAllocation(new Step() {
+            private TargetScales scales = new TargetScales();
+            private float scale;
+
+            @Override
+            void run(int frame) {
+                scale = stepScales(scales, scale);
+            }
+        });
+    }
+
+    @Test
+    public void animationStoreStep() {
+        final RadialAnimationStore store = new RadialAnimationStore(256);
+        for (int i = 0; i < 256; i++)
+            store.add(0, 0, 0);
+
+        assertNoAllocation(new Step() {
+            private TargetScales scales = new TargetScales();
+
+            @Override
+            void run(int frame) {
+                stepStore(store, scales, frame);
+            }
+        });
+    }
+
+    @Test
+    public void clockTick() {
+        assertNoAllocation(new Step() {
+            private RadialClock clock = new RadialClock();
+            private long time;
+
+            @Override
+            void run(int frame) {
+                time += RadialClock.FRAME_NANOS;
+                clock.tick(time);
+            }
+        });
+    }
+
+    @Test
+    public void scrollerStep() {
+        final RadialScroller scroller = new RadialScroller(2);
+        scroller.setBound(1000);
+
+        assertNoAllocation(new Step() {
+            private long time;
+
+            @Override
+            void run(int frame) {
+                time = stepScroller(scroller, time, frame);
+            }
+        });
+    }
+
+    /**
+     * Runs the engine side of a frame in the same order as the view does: the clock and
+     * scroller are stepped, the animation store is advanced, the visible rows are found,
+     * every visible item is positioned and scaled towards the edge, and a touch is tested.
+     */
+    @Test
+    public void frame() {
+        int count = 500;
+        int[] sizes = new int[count];
+        int[] distances = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = i % 5;
+            distances[i] = i;
+        }
+
+        final RadialLayout layout = new RadialLayoutEngine(2).layout(sizes, distances, null, null);
+        final RadialHitIndex index = new RadialHitIndex(layout);
+        final RadialAnimationStore store = new RadialAnimationStore(count);
+        for (int i = 0; i < count; i++)
+            store.add(layout.getRadius(i), layout.getRadian(i), 1);
+
+        final RadialScroller scroller = new RadialScroller(2);
+        scroller.setBound(1000);
+
+        assertNoAllocation(new Step() {
+            private RadialClock clock = new RadialClock();
+            private TargetScales scales = new TargetScales();
+            private long time;
+
+            @Override
+            void run(int frame) {
+                time = stepScroller(scroller, time, frame);
+                float remaining = RadialClock.getRatio(RadialMath.EASING, clock.tick(time));
+                stepStore(store, scales, frame);
+
+                float offsetX = scroller.getX(), offsetY = scroller.getY();
+                float offsetDistance = (float) Math.sqrt((offsetX * offsetX) + (offsetY * offsetY));
+                int totalRadius = (1080 + 1920) / 4;
+                int end = layout.getRowStart(layout.getRowCount(offsetDistance + totalRadius));
+                for (int i = layout.getRowStart(layout.getRowCount(offsetDistance - totalRadius)); i < end; i++) {
+                    int rowRadius = layout.getRowRadius(layout.getRow(i));
+                    float radius = RadialMath.approach(store.getRadius(i), layout.getRadius(i), remaining);
+                    float x = RadialMath.getX(rowRadius, store.getRadian(i), radius) + offsetX;
+                    float y = RadialMath.getY(rowRadius, store.getRadian(i), radius) + offsetY;
+                    RadialMath.getEdgeScale(x + radius, y + radius, radius, store.getScale(i), 1080, 1920);
+                }
+
+                index.find(offsetX + frame % 300, offsetY);
+            }
+        });
+    }
+
+    /**
+     * Runs a step until it has been compiled, and then checks that it does not allocate.
+     */
+    private void assertNoAllocation(Step step) {
+        int frame = 0;
+        for (int i = 0; i < WARMUP; i++)
+            step.run(frame++);
+
+        long bytes = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS && bytes > 0; run++) {
+            long overhead = getOverhead();
+            long start = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ITERATIONS; i++)
+                step.run(frame++);
+
+            bytes = Math.min(bytes, threads.getThreadAllocatedBytes(threadId) - start - overhead);
+        }
+
+        assertEquals(0, bytes);
+    }
+
+    /**
+     * A single frame of work, which is measured over many frames.
+     */
+    private abstract static class Step {
+        abstract void run(int frame);
+    }
+
+    private static float stepScales(TargetScales scales, float scale) {
+        if (!scales.needsFrame(scale))
+            scales.set(scale > 0.5f ? 0 : 1.07f, scale > 0.5f ? 0 : 1);
+
+        return RadialMath.approach(scale, scales.next(scale), 0.5f);
+    }
+
+    private static void stepStore(RadialAnimationStore store, TargetScales scales, int frame) {
+        if (store.getAnimatingCount() == 0) {
+            scales.set(frame % 2 == 0 ? 1.07f : 0.8f, 1);
+            for (int slot = 0; slot < store.size(); slot++) {
+                store.setTarget(slot, 50 + (frame % 7), slot * 0.1 + frame);
+                store.setTargetScales(slot, scales, false);
+            }
+        }
+
+        store.step(0.8f);
+    }
+
+    /**
+     * Drags the scroller and lets it fling whenever it has come to rest, so that every
+     * part of step() is run: the decay, the spring past the bound, and the return.
+     */
+    private static long stepScroller(RadialScroller scroller, long time, int frame) {
+        time += RadialClock.FRAME_NANOS;
+        if (!scroller.isMoving() && scroller.getReturnNanos() < 0) {
+            scroller.down(0, 0, time);
+            for (int i = 1; i <= 10; i++) {
+                time += 8000000L;
+                scroller.drag(i * (frame % 2 == 0 ? 150 : -15), 0, time);
+            }
+
+            scroller.up(time);
+        }
+
+        scroller.step(time);
+        if (!scroller.isMoving() && scroller.getReturnNanos() >= 0)
+            time = scroller.getReturnNanos();
+
+        return time;
+    }
+
+    /**
+     * @return the amount of bytes that reading the allocated bytes of the thread allocates itself
+     */
+    private long getOverhead() {
+        long start = threads.getThreadAllocatedBytes(threadId);
+        return threads.getThreadAllocatedBytes(threadId) - start;
+    }
+
+}
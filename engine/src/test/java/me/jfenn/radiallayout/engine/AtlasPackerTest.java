@@ -0,0 +1,136 @@
+package me.jfenn.radiallayout.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AtlasPackerTest {
+
+    private static final int PAGE_SIZE = 256;
+    private static final int STEP = 8;
+
+    @Test
+    public void squaresStayInsideTheirPages() {
+        AtlasPacker packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, STEP);
+        List<Integer> slots = allocate(packer, new Random(1), 400);
+
+        assertTrue(packer.getPageCount() > 1);
+        assertInBounds(packer, slots);
+        assertNoOverlap(packer, slots);
+    }
+
+    @Test
+    public void freedCellsAreReusedWithoutOverlap() {
+        AtlasPacker packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, STEP);
+        Random random = new Random(2);
+        List<Integer> slots = allocate(packer, random, 200);
+
+        for (int i = slots.size() - 1; i >= 0; i -= 2) {
+            packer.free(slots.get(i));
+            slots.remove(i);
+        }
+
+        int pageCount = packer.getPageCount();
+        assertTrue(packer.getFreeCellArea() > 0);
+
+        // the same sizes fit into the cells that were freed, so no pages are added
+        slots.addAll(allocate(packer, new Random(2), 100));
+        assertEquals(pageCount, packer.getPageCount());
+        assertInBounds(packer, slots);
+        assertNoOverlap(packer, slots);
+    }
+
+    @Test
+    public void cellsFitTheirSquares() {
+        AtlasPacker packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, STEP);
+        int slot = packer.allocate(13);
+
+        assertEquals(13, packer.getSize(slot));
+        assertEquals(16, packer.getCellSize(slot));
+        assertEquals(13 * 13, packer.getUsedArea());
+        assertEquals(1, packer.getUsedCount());
+
+        packer.free(slot);
+        assertEquals(0, packer.getSize(slot));
+        assertEquals(0, packer.getUsedCount());
+        assertEquals(16 * 16, packer.getFreeCellArea());
+
+        // freeing a slot twice does not count it twice
+        packer.free(slot);
+        assertEquals(16 * 16, packer.getFreeCellArea());
+    }
+
+    @Test
+    public void squaresLargerThanAPageAreRejected() {
+        AtlasPacker packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, STEP);
+        assertEquals(-1, packer.allocate(PAGE_SIZE + 1));
+        assertEquals(-1, packer.allocate(0));
+        assertEquals(0, packer.getPageCount());
+
+        int slot = packer.allocate(PAGE_SIZE);
+        assertFalse(slot < 0);
+        assertEquals(0, packer.getX(slot));
+        assertEquals(0, packer.getY(slot));
+    }
+
+    @Test
+    public void resetRemovesEverySquare() {
+        AtlasPacker packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, STEP);
+        allocate(packer, new Random(3), 100);
+        packer.reset();
+
+        assertEquals(0, packer.getPageCount());
+        assertEquals(0, packer.getUsedCount());
+        assertEquals(0, packer.getUsedArea());
+        assertEquals(0, packer.getShelfArea());
+
+        List<Integer> slots = allocate(packer, new Random(3), 100);
+        assertInBounds(packer, slots);
+        assertNoOverlap(packer, slots);
+    }
+
+    private static List<Integer> allocate(AtlasPacker packer, Random random, int count) {
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int slot = packer.allocate(1 + random.nextInt(64));
+            assertFalse(slot < 0);
+            slots.add(slot);
+        }
+
+        return slots;
+    }
+
+    private static void assertInBounds(AtlasPacker packer, List<Integer> slots) {
+        for (int slot : slots) {
+            assertTrue(packer.getSize(slot) <= packer.getCellSize(slot));
+            assertTrue(packer.getPage(slot) < packer.getPageCount());
+            assertTrue(packer.getX(slot) >= 0 && packer.getX(slot) + packer.getCellSize(slot) <= PAGE_SIZE);
+            assertTrue(packer.getY(slot) >= 0 && packer.getY(slot) + packer.getCellSize(slot) <= PAGE_SIZE);
+        }
+    }
+
+    private static void assertNoOverlap(AtlasPacker packer, List<Integer> slots) {
+        for (int i = 0; i < slots.size(); i++) {
+            int a = slots.get(i);
+            for (int j = i + 1; j < slots.size(); j++) {
+                int b = slots.get(j);
+                assertTrue(a != b);
+                if (packer.getPage(a) != packer.getPage(b))
+                    continue;
+
+                boolean isApart = packer.getX(a) + packer.getCellSize(a) <= packer.getX(b)
+                        || packer.getX(b) + packer.getCellSize(b) <= packer.getX(a)
+                        || packer.getY(a) + packer.getCellSize(a) <= packer.getY(b)
+                        || packer.getY(b) + packer.getCellSize(b) <= packer.getY(a);
+                assertTrue(isApart);
+            }
+        }
+    }
+
+}
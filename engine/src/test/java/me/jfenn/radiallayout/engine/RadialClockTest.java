@@ -0,0 +1,82 @@
+package me.jfenn.radiallayout.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RadialClockTest {
+
+    private static final float DELTA = 0.0001f;
+
+    private RadialClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new RadialClock();
+    }
+
+    @Test
+    public void firstTickIsOneFrame() {
+        assertEquals(0, clock.getFrames(), DELTA);
+        assertEquals(1, clock.tick(123456789L), DELTA);
+        assertEquals(1, clock.getFrames(), DELTA);
+    }
+
+    @Test
+    public void tickReturnsElapsedFrames() {
+        long time = 1000000000L;
+        clock.tick(time);
+
+        assertEquals(1, clock.tick(time += RadialClock.FRAME_NANOS), DELTA);
+        assertEquals(2, clock.tick(time += 2 * RadialClock.FRAME_NANOS), DELTA);
+
+        // a 120 Hz display advances by half a frame at a time
+        assertEquals(0.5f, clock.tick(time += RadialClock.FRAME_NANOS / 2), 0.001f);
+        assertEquals(0.5f, clock.getFrames(), 0.001f);
+    }
+
+    @Test
+    public void tickIgnoresRepeatedAndEarlierFrames() {
+        long time = 1000000000L;
+        clock.tick(time);
+
+        assertEquals(0, clock.tick(time), DELTA);
+        assertEquals(0, clock.tick(time - RadialClock.FRAME_NANOS), DELTA);
+    }
+
+    @Test
+    public void tickIsCappedAtMaxFrames() {
+        long time = 1000000000L;
+        clock.tick(time);
+
+        assertEquals(RadialClock.MAX_FRAMES, clock.tick(time += 100 * RadialClock.FRAME_NANOS), DELTA);
+        assertEquals(RadialClock.MAX_FRAMES, clock.tick(time += 5000000000L), DELTA);
+
+        // the cap does not carry over into the next frame
+        assertEquals(1, clock.tick(time + RadialClock.FRAME_NANOS), DELTA);
+    }
+
+    @Test
+    public void resetMakesNextTickOneFrame() {
+        long time = 1000000000L;
+        clock.tick(time);
+        clock.tick(time += 3 * RadialClock.FRAME_NANOS);
+
+        clock.reset();
+        assertEquals(0, clock.getFrames(), DELTA);
+        assertEquals(1, clock.tick(time + 60 * RadialClock.FRAME_NANOS), DELTA);
+    }
+
+    @Test
+    public void ratioCompoundsPerFrame() {
+        assertEquals(1, RadialClock.getRatio(0.8f, 0), DELTA);
+        assertEquals(0.8f, RadialClock.getRatio(0.8f, 1), DELTA);
+        assertEquals(0.64f, RadialClock.getRatio(0.8f, 2), DELTA);
+
+        // two half frames remove as much as one whole frame
+        float half = RadialClock.getRatio(0.8f, 0.5f);
+        assertEquals(0.8f, half * half, DELTA);
+    }
+
+}
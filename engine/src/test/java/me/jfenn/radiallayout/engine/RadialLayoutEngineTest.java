@@ -0,0 +1,120 @@
+package me.jfenn.radiallayout.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RadialLayoutEngineTest {
+
+    private static final int COUNT = 200;
+
+    @Test
+    public void unchangedLayoutReusesEveryRow() {
+        RadialLayout previous = layout(COUNT, null, null);
+        RadialLayout layout = layout(COUNT, getRadii(previous), previous);
+
+        assertEquals(previous.getMaxRow() + 1, layout.getReusedRowCount());
+        assertSameLayout(layout(COUNT, getRadii(previous), null), layout);
+    }
+
+    @Test
+    public void appendedItemDoesNotReuseLastRow() {
+        RadialLayout previous = layout(COUNT, null, null);
+        float[] radii = Arrays.copyOf(getRadii(previous), COUNT + 1);
+        RadialLayout layout = layout(COUNT + 1, radii, previous);
+
+        // the last row ended because there were no more items, so the new one could fit into it
+        assertEquals(previous.getMaxRow(), layout.getReusedRowCount());
+        assertSameLayout(layout(COUNT + 1, radii, null), layout);
+    }
+
+    @Test
+    public void changedRadiusRepacksFromItsRow() {
+        RadialLayout previous = layout(COUNT, null, null);
+        float[] radii = getRadii(previous);
+        int changed = previous.getRowStart(3) + 1;
+        radii[previous.getIndex(changed)] += 4;
+
+        RadialLayout layout = layout(COUNT, radii, previous);
+        assertEquals(3, layout.getReusedRowCount());
+        assertSameLayout(layout(COUNT, radii, null), layout);
+    }
+
+    @Test
+    public void insertedItemIsSortedBeforeLaterItems() {
+        RadialLayout previous = layout(COUNT, null, null);
+        float[] radii = Arrays.copyOf(getRadii(previous), COUNT + 1);
+        int[] distances = getDistances(COUNT + 1);
+        distances[COUNT] = COUNT / 2;
+
+        RadialLayout layout = layout(distances, radii, previous);
+        // after the item that was already at the same distance, as it has the same size and a lower index
+        assertEquals(COUNT, layout.getIndex((COUNT / 2) + 1));
+        assertSameLayout(layout(distances, radii, null), layout);
+    }
+
+    @Test
+    public void movedItemIsSortedAgain() {
+        RadialLayout previous = layout(COUNT, null, null);
+        float[] radii = getRadii(previous);
+        int[] distances = getDistances(COUNT);
+        distances[10] = COUNT * 2;
+
+        RadialLayout layout = layout(distances, radii, previous);
+        assertEquals(10, layout.getIndex(layout.size() - 1));
+        assertSameLayout(layout(distances, radii, null), layout);
+    }
+
+    private static RadialLayout layout(int count, float[] radii, RadialLayout previous) {
+        return layout(getDistances(count), radii, previous);
+    }
+
+    private static RadialLayout layout(int[] distances, float[] radii, RadialLayout previous) {
+        int[] sizes = new int[distances.length];
+        for (int i = 0; i < sizes.length; i++)
+            sizes[i] = (i * 7) % 5;
+
+        return new RadialLayoutEngine(2).layout(sizes, distances, radii, previous);
+    }
+
+    private static int[] getDistances(int count) {
+        int[] distances = new int[count];
+        for (int i = 0; i < count; i++)
+            distances[i] = i;
+
+        return distances;
+    }
+
+    /**
+     * @return the radius of each item, by its index in the input
+     */
+    private static float[] getRadii(RadialLayout layout) {
+        float[] radii = new float[layout.size()];
+        for (int i = 0; i < layout.size(); i++)
+            radii[layout.getIndex(i)] = layout.getRadius(i);
+
+        return radii;
+    }
+
+    private static void assertSameLayout(RadialLayout expected, RadialLayout actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getMaxRow(), actual.getMaxRow());
+
+        int[] expectedRows = new int[expected.size()], actualRows = new int[actual.size()];
+        double[] expectedRadians = new double[expected.size()], actualRadians = new double[actual.size()];
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getIndex(i), actual.getIndex(i));
+            expectedRows[i] = expected.getRow(i);
+            actualRows[i] = actual.getRow(i);
+            expectedRadians[i] = expected.getRadian(i);
+            actualRadians[i] = actual.getRadian(i);
+        }
+
+        assertArrayEquals(expectedRows, actualRows);
+        assertArrayEquals(expectedRadians, actualRadians, 0);
+    }
+
+}
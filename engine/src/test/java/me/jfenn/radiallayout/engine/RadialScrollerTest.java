@@ -0,0 +1,250 @@
+package me.jfenn.radiallayout.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RadialScrollerTest {
+
+    private static final long START_NANOS = 1000000000L;
+    private static final long SAMPLE_NANOS = 8000000L;
+    private static final int SAMPLE_COUNT = 10;
+
+    private RadialScroller scroller;
+
+    @Before
+    public void setUp() {
+        // a density of 1, so that dp and px are the same
+        scroller = new RadialScroller(1);
+        scroller.setBound(100000);
+    }
+
+    @Test
+    public void flingDecaysExponentially() {
+        long time = fling(scroller, 1000, START_NANOS);
+        assertTrue(scroller.isMoving());
+        assertEquals(1000, scroller.getVelocityX(), 1);
+        assertEquals(0, scroller.getVelocityY(), 0.001f);
+
+        float x = scroller.getX();
+        assertTrue(scroller.step(time += RadialClock.FRAME_NANOS));
+
+        float seconds = RadialClock.FRAME_NANOS / 1e9f;
+        float decay = (float) Math.exp(-RadialScroller.FRICTION * seconds);
+        assertEquals(1000 * decay, scroller.getVelocityX(), 1);
+        assertEquals(x + (1000 * (1 - decay) / RadialScroller.FRICTION), scroller.getX(), 0.1f);
+
+        // the fling slows down every frame until it stops by itself
+        float velocity = scroller.getVelocityX();
+        for (int i = 0; i < 600 && scroller.isMoving(); i++) {
+            scroller.step(time += RadialClock.FRAME_NANOS);
+            assertTrue(scroller.getVelocityX() < velocity || scroller.getVelocityX() == 0);
+            velocity = scroller.getVelocityX();
+        }
+
+        assertFalse(scroller.isMoving());
+        assertEquals(0, scroller.getVelocityX(), 0);
+
+        // the total distance of an exponential decay is v / friction, less the part below the stop velocity
+        assertEquals(x + (1000 / RadialScroller.FRICTION), scroller.getX(), 5);
+    }
+
+    @Test
+    public void slowFlingIsIgnored() {
+        long time = fling(scroller, 20, START_NANOS);
+        assertEquals(0, scroller.getVelocityX(), 0);
+
+        float x = scroller.getX();
+        assertFalse(scroller.step(time + RadialClock.FRAME_NANOS));
+        assertEquals(x, scroller.getX(), 0);
+    }
+
+    @Test
+    public void noFlingAfterFingerWasStill() {
+        long time = drag(scroller, 1000, START_NANOS);
+        time += RadialScroller.VELOCITY_STALE_NANOS + 1;
+        scroller.up(time);
+
+        assertEquals(0, scroller.getVelocityX(), 0);
+        assertFalse(scroller.step(time + RadialClock.FRAME_NANOS));
+    }
+
+    @Test
+    public void flingJustBeforeStaleWindow() {
+        long time = drag(scroller, 1000, START_NANOS);
+        time += RadialScroller.VELOCITY_STALE_NANOS;
+        scroller.up(time);
+
+        assertTrue(scroller.getVelocityX() > 0);
+    }
+
+    @Test
+    public void springsBackToBound() {
+        scroller.setBound(100);
+        scroller.down(0, 0, START_NANOS);
+        scroller.drag(300, -300, START_NANOS + SAMPLE_NANOS);
+
+        // past the bound, the offset only follows part of the finger
+        assertEquals(200, scroller.getX(), 0.001f);
+        assertEquals(-200, scroller.getY(), 0.001f);
+
+        long time = START_NANOS + SAMPLE_NANOS + RadialScroller.VELOCITY_STALE_NANOS + 1;
+        scroller.up(time);
+        assertTrue(scroller.isMoving());
+
+        float x = scroller.getX();
+        for (int i = 0; i < 120 && scroller.isMoving(); i++) {
+            scroller.step(time += RadialClock.FRAME_NANOS);
+
+            // critically damped, so it moves towards the bound without overshooting it
+            assertTrue(scroller.getX() <= x);
+            assertTrue(scroller.getX() >= 100);
+            x = scroller.getX();
+        }
+
+        assertFalse(scroller.isMoving());
+        assertEquals(100, scroller.getX(), 0);
+        assertEquals(-100, scroller.getY(), 0);
+    }
+
+    @Test
+    public void flingPastBoundSpringsBack() {
+        scroller.setBound(50);
+        long time = fling(scroller, 4000, START_NANOS);
+
+        float max = 0;
+        for (int i = 0; i < 300 && scroller.isMoving(); i++) {
+            scroller.step(time += RadialClock.FRAME_NANOS);
+            max = Math.max(max, scroller.getX());
+        }
+
+        assertTrue(max > 50);
+        assertFalse(scroller.isMoving());
+        assertEquals(50, scroller.getX(), 0);
+    }
+
+    @Test
+    public void returnsToCenterAfterDelay() {
+        scroller.setBound(1000);
+        scroller.down(0, 0, START_NANOS);
+        scroller.drag(200, 100, START_NANOS + SAMPLE_NANOS);
+
+        long time = START_NANOS + SAMPLE_NANOS + RadialScroller.VELOCITY_STALE_NANOS + 1;
+        scroller.up(time);
+        assertEquals(time + RadialScroller.RETURN_DELAY_NANOS, scroller.getReturnNanos());
+
+        // nothing to fling, so the layout rests where it was let go
+        scroller.step(time += RadialClock.FRAME_NANOS);
+        assertFalse(scroller.isMoving());
+        assertFalse(scroller.step(scroller.getReturnNanos() - 1));
+        assertEquals(200, scroller.getX(), 0);
+
+        time = scroller.getReturnNanos();
+        scroller.step(time);
+        assertTrue(scroller.isMoving());
+        assertEquals(-1, scroller.getReturnNanos());
+
+        for (int i = 0; i < 120 && scroller.isMoving(); i++)
+            scroller.step(time += RadialClock.FRAME_NANOS);
+
+        assertFalse(scroller.isMoving());
+        assertEquals(0, scroller.getX(), 0);
+        assertEquals(0, scroller.getY(), 0);
+    }
+
+    @Test
+    public void touchCancelsReturn() {
+        scroller.down(0, 0, START_NANOS);
+        scroller.drag(200, 0, START_NANOS + SAMPLE_NANOS);
+        scroller.up(START_NANOS + SAMPLE_NANOS + RadialScroller.VELOCITY_STALE_NANOS + 1);
+
+        long returnNanos = scroller.getReturnNanos();
+        scroller.down(200, 0, returnNanos - 1);
+        assertEquals(-1, scroller.getReturnNanos());
+
+        scroller.step(returnNanos);
+        assertFalse(scroller.isMoving());
+        assertEquals(200, scroller.getX(), 0);
+    }
+
+    @Test
+    public void returnToCenterStartsImmediately() {
+        scroller.down(0, 0, START_NANOS);
+        scroller.drag(200, 0, START_NANOS + SAMPLE_NANOS);
+        scroller.returnToCenter();
+
+        assertFalse(scroller.isDragging());
+        assertTrue(scroller.isMoving());
+        assertEquals(-1, scroller.getReturnNanos());
+
+        // the first frame of the return only starts measuring time
+        long time = START_NANOS + SAMPLE_NANOS;
+        assertFalse(scroller.step(time));
+        assertTrue(scroller.step(time + RadialClock.FRAME_NANOS));
+        assertTrue(scroller.getX() < 200);
+    }
+
+    @Test
+    public void longFrameIsCappedAtMaxFrames() {
+        RadialScroller capped = new RadialScroller(1);
+        capped.setBound(100000);
+        long time = fling(scroller, 1000, START_NANOS);
+        fling(capped, 1000, START_NANOS);
+
+        long maxNanos = (long) (RadialClock.MAX_FRAMES * RadialClock.FRAME_NANOS);
+        scroller.step(time + maxNanos);
+        // still well before the layout starts to return to the center
+        capped.step(time + (10 * maxNanos));
+
+        assertEquals(scroller.getX(), capped.getX(), 0.001f);
+        assertEquals(scroller.getVelocityX(), capped.getVelocityX(), 0.001f);
+    }
+
+    @Test
+    public void longFrameIsSplitIntoSteps() {
+        // flung from inside a bound that it passes during the frame, so that a single step
+        // of the whole frame would carry on past the bound without springing back
+        RadialScroller split = new RadialScroller(1);
+        scroller.setBound(200);
+        split.setBound(200);
+        long time = fling(scroller, 2000, START_NANOS);
+        fling(split, 2000, START_NANOS);
+        assertTrue(scroller.getX() < 200);
+
+        int frames = (int) RadialClock.MAX_FRAMES;
+        scroller.step(time + (frames * RadialScroller.MAX_STEP_NANOS));
+        for (int i = 1; i <= frames; i++)
+            split.step(time + (i * RadialScroller.MAX_STEP_NANOS));
+
+        assertEquals(split.getX(), scroller.getX(), 0.01f);
+        assertEquals(split.getVelocityX(), scroller.getVelocityX(), 0.1f);
+    }
+
+    /**
+     * Drags the scroller to the right at a constant speed.
+     *
+     * @return the time of the last sample
+     */
+    private static long drag(RadialScroller scroller, float velocity, long time) {
+        scroller.down(0, 0, time);
+        for (int i = 1; i <= SAMPLE_COUNT; i++)
+            scroller.drag(velocity * i * SAMPLE_NANOS / 1e9f, 0, time + (i * SAMPLE_NANOS));
+
+        return time + (SAMPLE_COUNT * SAMPLE_NANOS);
+    }
+
+    /**
+     * Drags the scroller to the right at a constant speed and lets go of it straight away.
+     *
+     * @return the time that it was let go at
+     */
+    private static long fling(RadialScroller scroller, float velocity, long time) {
+        time = drag(scroller, velocity, time);
+        scroller.up(time);
+        return time;
+    }
+
+}
@@ -0,0 +1,201 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import me.jfenn.radiallayout.engine.RadialLayout;
+
+/**
+ * Loads the images of adapter items in the rows around the visible area of a
+ * view, and releases them again once their rows have scrolled far enough away,
+ * so that the amount of images held depends on the size of the view rather than
+ * the amount of items in the adapter.
+ */
+class AdapterBinder {
+
+    /**
+     * the amount of rows on each side of the visible ones that images are loaded for before they are visible
+     */
+    static final int BIND_ROWS = 2;
+
+    /**
+     * the amount of rows on each side of the visible ones that images are kept for, so that
+     * scrolling back and forth at the edge does not load the same images repeatedly
+     */
+    static final int RELEASE_ROWS = 4;
+
+    /**
+     * the amount of images that can be loaded at once, which are usually waiting on the disk or network
+     */
+    private static final int LOAD_THREADS = 3;
+
+    /**
+     * the threads that images are loaded on, which are separate from the ones that bitmaps are
+     * created on, so that slow loads never hold up the bitmaps of items that are already loaded
+     */
+    private static ExecutorService loadExecutor;
+
+    private RadialAdapter adapter;
+    private List<AdapterItem> boundItems;
+
+    private LayoutSnapshot snapshot;
+    private int firstRow = -1;
+    private int endRow = -1;
+
+    AdapterBinder(RadialAdapter adapter) {
+        this.adapter = adapter;
+        boundItems = new ArrayList<>();
+    }
+
+    RadialAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * Binds the items around the visible rows and unbinds the ones far from them. This
+     * does nothing unless the snapshot or the visible rows have changed since it was
+     * last called, so it can be called on every frame.
+     *
+     * @param view     the view that the items are displayed in
+     * @param snapshot the snapshot that is displayed
+     * @param firstRow the first row that is visible
+     * @param endRow   one more than the last row that is visible
+     */
+    void update(RadialLayoutView view, LayoutSnapshot snapshot, int firstRow, int endRow) {
+        if (snapshot == this.snapshot && firstRow == this.firstRow && endRow == this.endRow)
+            return;
+
+        this.snapshot = snapshot;
+        this.firstRow = firstRow;
+        this.endRow = endRow;
+
+        // release images before loading any more, so that memory is freed first
+        for (int i = boundItems.size() - 1; i >= 0; i--) {
+            AdapterItem item = boundItems.get(i);
+            if (item.isRemoved || (!item.isRemoving && (item.row < firstRow - RELEASE_ROWS || item.row >= endRow + RELEASE_ROWS))) {
+                unbind(item);
+                boundItems.set(i, boundItems.get(boundItems.size() - 1));
+                boundItems.remove(boundItems.size() - 1);
+            }
+        }
+
+        RadialLayout layout = snapshot.layout;
+        if (layout == null)
+            return;
+
+        int end = layout.getRowStart(endRow + BIND_ROWS);
+        for (int i = layout.getRowStart(Math.max(0, firstRow - BIND_ROWS)); i < end; i++) {
+            BaseRadialItem item = snapshot.items[i];
+            if (item instanceof AdapterItem)
+                bind(view, (AdapterItem) item);
+        }
+    }
+
+    /**
+     * Starts loading the image of an item on a worker thread, if it is not bound already.
+     */
+    private void bind(final RadialLayoutView view, final AdapterItem item) {
+        if (item.isImageBound)
+            return;
+
+        item.isImageBound = true;
+        boundItems.add(item);
+        if (item.hasImage())
+            return;
+
+        final int generation = item.bindGeneration;
+        load(new Runnable() {
+            @Override
+            public void run() {
+                // the data set may have changed since the item was bound
+                int position = findPosition(item);
+                if (position < 0)
+                    return;
+
+                final Bitmap image = adapter.loadItemImage(position);
+                if (image == null)
+                    return;
+
+                view.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (item.bindGeneration != generation)
+                            return;
+
+                        item.image = image;
+                        item.invalidateImages();
+                        view.requestFrame();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Finds the current position of an item in the adapter, checking the position that it
+     * was last laid out at first, and then every other position. This is called on a load
+     * thread, so the item may have been laid out again since it was bound.
+     *
+     * @return the position of the item, or -1 if it is no longer in the adapter
+     */
+    private int findPosition(AdapterItem item) {
+        int count = adapter.getItemCount();
+        int position = item.position;
+        if (position < count && item.id.equals(adapter.getItemId(position)))
+            return position;
+
+        for (int i = 0; i < count; i++) {
+            if (item.id.equals(adapter.getItemId(i)))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Runs a task on one of the threads that images are loaded on.
+     */
+    private static synchronized void load(@NonNull Runnable task) {
+        if (loadExecutor == null) {
+            loadExecutor = Executors.newFixedThreadPool(LOAD_THREADS, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "RadialLayout-load-" + count++);
+
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        loadExecutor.execute(task);
+    }
+
+    /**
+     * Releases the image of an item and any bitmaps created from it, ignoring any that
+     * are still being loaded or created. The source of the item is kept, as it does not
+     * hold the decoded image.
+     */
+    private void unbind(AdapterItem item) {
+        item.isImageBound = false;
+        item.bindGeneration++;
+        item.releaseImages();
+        item.image = null;
+    }
+
+}
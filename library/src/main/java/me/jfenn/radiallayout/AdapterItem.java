@@ -0,0 +1,42 @@
+package me.jfenn.radiallayout;
+
+/**
+ * An item created for a position of a RadialAdapter, which only holds an image
+ * while it is bound by an AdapterBinder, and is drawn as a placeholder otherwise.
+ */
+class AdapterItem extends RadialItem {
+
+    /**
+     * the position that the item was last laid out at, which is read when its image is loaded
+     */
+    volatile int position;
+
+    /**
+     * incremented whenever the item is unbound, so that an image that was still being loaded is ignored
+     */
+    int bindGeneration;
+    boolean isImageBound;
+
+    AdapterItem(RadialAdapter adapter, int position) {
+        super(adapter.getItemId(position), adapter.getItemImageSource(position), adapter.getItemSize(position), adapter.getItemDistance(position));
+        this.position = position;
+    }
+
+    private AdapterItem(AdapterItem item) {
+        super(item);
+        position = item.position;
+    }
+
+    @Override
+    AdapterItem copy() {
+        return new AdapterItem(this);
+    }
+
+    @Override
+    void animateTo(BaseRadialItem item, RadialLayoutView layout, float shadowRadius) {
+        super.animateTo(item, layout, shadowRadius);
+        if (item instanceof AdapterItem)
+            position = ((AdapterItem) item).position;
+    }
+
+}
@@ -1,12 +1,17 @@
 package me.jfenn.radiallayout;
 
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.support.annotation.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import me.jfenn.radiallayout.utils.RadialUtils;
+import me.jfenn.radiallayout.engine.RadialAnimationStore;
+import me.jfenn.radiallayout.engine.RadialMath;
+import me.jfenn.radiallayout.engine.TargetScales;
+import me.jfenn.radiallayout.utils.ImageUtils;
 
 /**
  * A view container specifying info such as the size to scale the image
@@ -15,10 +20,25 @@ import me.jfenn.radiallayout.utils.RadialUtils;
  */
 public abstract class BaseRadialItem {
 
+    /**
+     * the amount of levels in the mip chain of the circular bitmap: the bitmap itself, half of its size, and a quarter of its size
+     */
+    static final int MIP_LEVELS = 3;
+
+    /**
+     * the smallest size (px) that a level of the mip chain is created at
+     */
+    private static final int MIN_MIP_SIZE = 16;
+
     String id;
     Bitmap image;
+    ImageSource source;
     Bitmap scaledImage;
     Bitmap circleImage;
+    int circleSize;
+    boolean isCircleImageStale;
+    BitmapCache cache;
+    RadialMetrics metrics;
     int size;
     int distance;
     float radius;
@@ -31,14 +51,78 @@ public abstract class BaseRadialItem {
     double drawnRadian;
     float drawnScale;
 
+    /**
+     * the circle (in view coordinates) that the item was drawn in during the frame numbered hitFrame, for hit testing
+     */
+    float hitX, hitY, hitRadius;
+    long hitFrame = -1;
+
     float targetRadius;
     double targetRadian;
-    List<Float> targetScales;
+    TargetScales targetScales;
 
     boolean isRemoving;
 
-    float itemRadius;
-    float itemSeparation;
+    /**
+     * true once the item has finished animating out, until the view publishes a snapshot without it
+     */
+    boolean isRemoved;
+
+    /**
+     * the distance (px) between the center of the layout and the center of the item's row
+     */
+    int rowRadius;
+
+    /**
+     * the position of the item's top left corner, which is only calculated again after it has moved
+     */
+    private float x, y;
+    private float positionRadius = Float.NaN;
+    private double positionRadian;
+    private int positionRowRadius;
+
+    /**
+     * the amount of rows between the item and the visible rows, while the view is choosing which items to release
+     */
+    int trimDistance;
+
+    RadialAnimationStore store;
+    int storeSlot;
+    int storeGeneration;
+
+    /**
+     * the size of the circular bitmap that is being created on a worker thread, or 0 if there is none
+     */
+    private int renderSize;
+    private int scaledRenderSize;
+    private int renderGeneration;
+
+    /**
+     * creates the bitmaps of the item on a worker thread, reused for every request
+     */
+    private ItemRenderTask renderTask;
+
+    /**
+     * the atlas that any levels of the item are packed into, with the slot and bitmap of
+     * each level, which are only allocated once the item is first packed
+     */
+    CircleAtlas atlas;
+    int[] atlasSlots;
+    Bitmap[] atlasImages;
+    int atlasMark;
+
+    /**
+     * the levels that are waiting to be packed into the atlas, as a bit mask
+     */
+    int atlasQueued;
+
+    private BitmapShader shader;
+    private Bitmap shaderImage;
+    private Matrix shaderMatrix;
+
+    private Bitmap[] circleMips;
+    private Bitmap mipSource;
+    private int mipRenderLevel;
 
     /**
      * Creates a new container specifying info such as the size to scale the image
@@ -57,15 +141,30 @@ public abstract class BaseRadialItem {
         this.distance = distance;
         scale = 1;
 
-        targetScales = new ArrayList<>();
-        targetScales.add(1f);
+        targetScales = new TargetScales();
+    }
+
+    /**
+     * Creates a new container for an image that is decoded at the size that it is
+     * displayed at, rather than being held in memory at its full resolution.
+     *
+     * @param id       some arbitrary identifier
+     * @param source   the image to be displayed
+     * @param size     the size to scale the image relative to other items
+     * @param distance the distance from the center to position the image at relative to other items
+     */
+    public BaseRadialItem(String id, ImageSource source, int size, int distance) {
+        this(id, (Bitmap) null, size, distance);
+        this.source = source;
     }
 
     public BaseRadialItem(BaseRadialItem item) {
         this(item.id, item.image, item.size, item.distance);
+        source = item.source;
         radius = item.radius;
-        scaledImage = item.scaledImage;
-        circleImage = item.circleImage;
+        cache = item.cache;
+        metrics = item.metrics;
+        setImages(item);
 
         targetRadius = radius;
     }
@@ -81,6 +180,20 @@ public abstract class BaseRadialItem {
         return id;
     }
 
+    /**
+     * @return whether the item has an image or a source to decode one from
+     */
+    boolean hasImage() {
+        return image != null || source != null;
+    }
+
+    /**
+     * @return the image or source that the bitmaps of the item are created from, to identify them in the cache
+     */
+    Object getImageKey() {
+        return image != null ? image : source;
+    }
+
     public int getSize() {
         return size;
     }
@@ -95,45 +208,513 @@ public abstract class BaseRadialItem {
      *
      * @param radius the required radius of the circle
      */
-    abstract void setRadius(float radius, float shadowSizeDp);
+    void setRadius(float radius, float shadowSizeDp) {
+        // images from a source are only decoded on a worker thread once they are drawn
+        int size = getScaledImageSize(radius, shadowSizeDp);
+        if (size > 0 && image != null && (scaledImage == null || scaledImage.getWidth() != size || scaledImage.getHeight() != size))
+            replaceScaledImage(scaleImage(size, size));
+
+        this.radius = radius;
+        targetRadius = radius;
+    }
+
+    /**
+     * Determines the size of the scaled image needed to display the item at a radius.
+     *
+     * @param radius       the radius of the circle
+     * @param shadowSizeDp the size (in dp) of the shadow drawn around the circle
+     * @return the width and height of the scaled image, or 0 if the radius is too small to need one
+     */
+    abstract int getScaledImageSize(float radius, float shadowSizeDp);
+
+    /**
+     * Creates the scaled image needed to display the item at a radius. This may be
+     * called from a worker thread, so it must not modify the item. The returned
+     * bitmap has been retained for the caller.
+     *
+     * @param radius       the radius of the circle
+     * @param shadowSizeDp the size (in dp) of the shadow drawn around the circle
+     * @return the scaled image, or null if the radius is too small to need one
+     */
+    @Nullable
+    Bitmap createScaledImage(float radius, float shadowSizeDp) {
+        int size = getScaledImageSize(radius, shadowSizeDp);
+        return size > 0 ? scaleImage(size, size) : null;
+    }
+
+    /**
+     * Creates a scaled copy of the item's image, decoding it from its source if it is
+     * not in memory, or finds an identical one in the cache. The returned bitmap has been
+     * retained for the caller.
+     *
+     * @param width  the width of the scaled image
+     * @param height the height of the scaled image
+     * @return the scaled image, or null if the item does not have an image or it could not be decoded
+     */
+    @Nullable
+    Bitmap scaleImage(int width, int height) {
+        // the image of an adapter item can be unbound on the main thread while this runs on a worker
+        Bitmap image = this.image;
+        ImageSource source = this.source;
+        if (image == null && source == null)
+            return null;
+
+        BitmapCache.Key key = null;
+        if (cache != null) {
+            key = new BitmapCache.Key(image != null ? image : source, BitmapCache.TYPE_SCALED, width, height);
+            Bitmap bitmap = cache.acquire(key);
+            if (bitmap != null)
+                return bitmap;
+        }
+
+        Bitmap bitmap = image != null ? ImageUtils.extractThumbnail(image, width, height, getPool()) : source.decode(width, height, getPool());
+        if (bitmap == null)
+            return null;
+
+        onBitmapCreated(bitmap);
+        retain(bitmap);
+        if (key != null)
+            cache.put(key, bitmap);
+
+        return bitmap;
+    }
+
+    /**
+     * @return the pool that the bitmaps of the item are taken from and returned to, or null if there is none
+     */
+    @Nullable
+    BitmapPool getPool() {
+        return cache != null ? cache.getPool() : null;
+    }
+
+    /**
+     * Counts a bitmap that has been created for the item, if the metrics of its view are being collected.
+     */
+    void onBitmapCreated(@Nullable Bitmap bitmap) {
+        RadialMetrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.onBitmapCreated(bitmap);
+    }
+
+    /**
+     * Marks a bitmap as held by the item, so that it is not reused by the pool.
+     */
+    void retain(@Nullable Bitmap bitmap) {
+        BitmapPool pool = getPool();
+        if (pool != null)
+            pool.retain(bitmap);
+    }
+
+    /**
+     * Stops holding a bitmap, allowing the pool to reuse it if nothing else holds it.
+     */
+    void release(@Nullable Bitmap bitmap) {
+        BitmapPool pool = getPool();
+        if (pool != null)
+            pool.release(bitmap);
+    }
+
+    /**
+     * Replaces the scaled image with one that has already been retained, and releases the previous one.
+     */
+    void replaceScaledImage(@Nullable Bitmap bitmap) {
+        release(scaledImage);
+        scaledImage = bitmap;
+    }
+
+    /**
+     * Replaces the circular image with one that has already been retained, and releases the previous one.
+     */
+    void replaceCircleImage(@Nullable Bitmap bitmap) {
+        if (bitmap != circleImage) {
+            releaseCircleMips();
+            if (atlas != null)
+                atlas.remove(this);
+        }
+
+        release(circleImage);
+        circleImage = bitmap;
+    }
+
+    /**
+     * Releases the smaller copies of the circular bitmap, after it has been replaced.
+     */
+    private void releaseCircleMips() {
+        if (circleMips != null) {
+            for (int level = 1; level < MIP_LEVELS; level++) {
+                release(circleMips[level]);
+                circleMips[level] = null;
+            }
+        }
+
+        mipSource = null;
+        mipRenderLevel = 0;
+    }
+
+    /**
+     * Shares the bitmaps of another item instead of the ones that this item currently holds.
+     *
+     * @param item the item to share the bitmaps of
+     */
+    private void setImages(BaseRadialItem item) {
+        retain(item.scaledImage);
+        retain(item.circleImage);
+        replaceScaledImage(item.scaledImage);
+        replaceCircleImage(item.circleImage);
+        circleSize = item.circleSize;
+        isCircleImageStale = item.isCircleImageStale;
+    }
+
+    /**
+     * Releases the bitmaps held by the item once it is no longer displayed, so
+     * that they can be reused, and ignores any that are still being created. If
+     * the item is drawn again, they are created again.
+     */
+    void releaseImages() {
+        if (atlas != null)
+            atlas.remove(this);
+
+        replaceScaledImage(null);
+        replaceCircleImage(null);
+        shader = null;
+        shaderImage = null;
+
+        renderSize = 0;
+        scaledRenderSize = 0;
+        renderGeneration++;
+    }
+
+    /**
+     * Counts the pixel memory of the bitmaps that the item has created from its image. Bitmaps
+     * that are shared with other items through the cache are counted by each of them.
+     *
+     * @return the amount of bytes held by the item
+     */
+    long getHeldByteCount() {
+        long bytes = getByteCount(scaledImage) + getByteCount(circleImage);
+        if (circleMips != null) {
+            for (Bitmap mip : circleMips)
+                bytes += getByteCount(mip);
+        }
+
+        return bytes;
+    }
+
+    private static long getByteCount(@Nullable Bitmap bitmap) {
+        return bitmap != null ? bitmap.getByteCount() : 0;
+    }
 
     float getX() {
-        return (float) (RadialUtils.getRadius(row, itemRadius, itemSeparation) * Math.sin((Math.PI / 2) - (radian + radianOffset))) - radius;
+        updatePosition();
+        return x;
     }
 
     float getY() {
-        return (float) (RadialUtils.getRadius(row, itemRadius, itemSeparation) * Math.sin(radian + radianOffset)) - radius;
+        updatePosition();
+        return y;
+    }
+
+    /**
+     * Calculates the position of the item again if its radius, angle or row has
+     * changed since it was last calculated.
+     */
+    private void updatePosition() {
+        double radian = this.radian + radianOffset;
+        if (radius != positionRadius || radian != positionRadian || rowRadius != positionRowRadius) {
+            x = RadialMath.getX(rowRadius, radian, radius);
+            y = RadialMath.getY(rowRadius, radian, radius);
+            positionRadius = radius;
+            positionRadian = radian;
+            positionRowRadius = rowRadius;
+        }
     }
 
     /**
-     * Creates a new circular bitmap if the current one does not match the required dimensions, and returns it.
+     * Creates the circular bitmap that is drawn to display the item at a radius. This
+     * is called from a worker thread, so it must not modify the item or read the view. The
+     * returned bitmap has been retained for the caller.
      *
-     * @param layout the current radial layout
+     * @param style          the values of the view to create the bitmap with
+     * @param scaledImage    the scaled image to draw inside the circle
+     * @param radius         the radius of the circle
+     * @param shadowRadiusDp the size (in dp) of the shadow drawn around the circle
      * @return a circular image bitmap
      */
-    abstract Bitmap getCircleImage(final RadialLayoutView layout, float shadowRadiusDp);
+    abstract Bitmap createCircleImage(CircleStyle style, Bitmap scaledImage, float radius, float shadowRadiusDp);
+
+    /**
+     * Returns the circular bitmap of the item if it matches the current dimensions. Otherwise,
+     * starts creating one on a worker thread and returns the previous bitmap, which may have a
+     * different size, to be drawn in its place until the new one is ready.
+     *
+     * @param layout the current radial layout
+     * @return the most recent circular image bitmap, or null if one has not been created yet
+     */
+    @Nullable
+    Bitmap getCircleImageAsync(RadialLayoutView layout, float shadowRadiusDp) {
+        int size = (int) (radius * 2);
+        if (circleImage != null && circleSize == size && !isCircleImageStale)
+            return circleImage;
+
+        if (size > 0 && renderSize != size) {
+            renderSize = size;
+            retain(scaledImage);
+            getRenderTask().requestCircle(layout, size, radius, shadowRadiusDp, renderGeneration, scaledImage);
+        }
+
+        return circleImage;
+    }
+
+    /**
+     * Swaps in a circular bitmap that has been created on a worker thread, as long as
+     * the item has not changed since and the bitmap is closer to its current size than
+     * the one it already has.
+     */
+    void onCircleImageRendered(RadialLayoutView layout, Bitmap scaledImage, Bitmap circleImage, int size, int generation) {
+        int currentSize = (int) (radius * 2);
+        if (generation == renderGeneration && circleImage != null
+                && (this.circleImage == null || isCircleImageStale || Math.abs(currentSize - size) <= Math.abs(currentSize - circleSize))) {
+            replaceScaledImage(scaledImage);
+            replaceCircleImage(circleImage);
+            circleSize = size;
+            isCircleImageStale = false;
+            layout.requestFrame();
+        } else {
+            release(scaledImage);
+            release(circleImage);
+        }
+    }
+
+    /**
+     * Chooses the level of the mip chain that is closest to the size that the circular
+     * bitmap is drawn at.
+     *
+     * @param scale the size that the bitmap is drawn at, relative to its actual size
+     * @return 0 for the bitmap itself, 1 for half of its size, or 2 for a quarter of its size
+     */
+    static int getMipLevel(float scale) {
+        if (scale < 0.3536f)
+            return 2;
+        else if (scale < 0.7071f)
+            return 1;
+        else return 0;
+    }
+
+    /**
+     * Returns a smaller copy of the circular bitmap, so that an item which is drawn at a
+     * fraction of its size does not filter every pixel of its full bitmap. The copies are
+     * created on a worker thread the first time that they are needed, each from the next
+     * larger one, and the closest larger level is returned until then.
+     *
+     * @param layout the current radial layout
+     * @param level  the level of the mip chain, from getMipLevel
+     * @return the bitmap for the level, or a larger one if it has not been created yet
+     */
+    @Nullable
+    Bitmap getCircleMip(RadialLayoutView layout, int level) {
+        Bitmap source = circleImage;
+        if (source == null)
+            return null;
+
+        while (level > 0 && (source.getWidth() >> level) < MIN_MIP_SIZE)
+            level--;
+
+        if (mipSource != source) {
+            releaseCircleMips();
+            mipSource = source;
+        }
+
+        if (circleMips == null)
+            circleMips = new Bitmap[MIP_LEVELS];
+
+        int available = level;
+        while (available > 0 && circleMips[available] == null)
+            available--;
+
+        if (available < level && mipRenderLevel < level) {
+            mipRenderLevel = level;
+            retain(source);
+            getRenderTask().requestMips(layout, source, level);
+        }
+
+        return available > 0 ? circleMips[available] : source;
+    }
+
+    /**
+     * @param level the level of the mip chain, or 0 for the circular bitmap itself
+     * @return the bitmap that has been created for the level, or null if there is none
+     */
+    @Nullable
+    Bitmap getCircleLevelImage(int level) {
+        if (level == 0)
+            return circleImage;
+
+        return circleMips != null ? circleMips[level] : null;
+    }
+
+    /**
+     * Stores the levels of the mip chain that have been created on a worker thread, as
+     * long as they were created from the current circular bitmap.
+     */
+    void onCircleMipsRendered(RadialLayoutView layout, Bitmap source, Bitmap[] mips) {
+        boolean isCurrent = source == mipSource && circleMips != null;
+        for (int level = 1; level < MIP_LEVELS; level++) {
+            if (isCurrent && circleMips[level] == null)
+                circleMips[level] = mips[level];
+            else release(mips[level]);
+        }
+
+        if (isCurrent)
+            layout.requestFrame();
+    }
+
+    /**
+     * Returns the scaled image of the item to draw it through a shader. If it does not
+     * match the current dimensions, a new one is created on a worker thread while the
+     * current one is scaled to fit. Small differences are ignored while the item is
+     * animating, so that it is not rescaled on every frame of a resize.
+     *
+     * @param layout       the current radial layout
+     * @param shadowSizeDp the size (in dp) of the shadow drawn around the circle
+     * @return the most recent scaled image, or null if one has not been created yet
+     */
+    @Nullable
+    Bitmap getScaledImageAsync(RadialLayoutView layout, float shadowSizeDp) {
+        int size = getScaledImageSize(radius, shadowSizeDp);
+        if (scaledImage != null) {
+            int difference = Math.abs(scaledImage.getWidth() - size);
+            if (difference == 0 || (difference <= size / 4 && isAnimating()))
+                return scaledImage;
+        }
+
+        if (size > 0 && scaledRenderSize != size) {
+            scaledRenderSize = size;
+            getRenderTask().requestScaled(layout, size, shadowSizeDp, renderGeneration);
+        }
+
+        return scaledImage;
+    }
+
+    /**
+     * Swaps in a scaled image that has been created on a worker thread, as long as the
+     * item has not changed since and the image is closer to its current size than the
+     * one it already has.
+     */
+    void onScaledImageRendered(RadialLayoutView layout, Bitmap scaledImage, float shadowSizeDp, int generation) {
+        int currentSize = getScaledImageSize(radius, shadowSizeDp);
+        if (scaledImage != null && generation == renderGeneration && (this.scaledImage == null
+                || Math.abs(currentSize - scaledImage.getWidth()) <= Math.abs(currentSize - this.scaledImage.getWidth()))) {
+            replaceScaledImage(scaledImage);
+
+            // the shader is created here rather than while the item is drawn
+            shader = new BitmapShader(scaledImage, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            shaderImage = scaledImage;
+            layout.requestFrame();
+        } else release(scaledImage);
+    }
+
+    /**
+     * @return the task that creates the bitmaps of the item on a worker thread
+     */
+    private ItemRenderTask getRenderTask() {
+        if (renderTask == null)
+            renderTask = new ItemRenderTask(this);
+
+        return renderTask;
+    }
+
+    /**
+     * Sets up a paint to draw the scaled image of the item through a shader, scaled to fit
+     * a square in the coordinates of the item.
+     *
+     * @param paint the paint to draw the image with
+     * @param left  the left edge of the square
+     * @param top   the top edge of the square
+     * @param size  the width and height of the square
+     * @return false if the item has no scaled image to draw
+     */
+    boolean setShader(Paint paint, float left, float top, float size) {
+        if (scaledImage == null)
+            return false;
+
+        if (shader == null || shaderImage != scaledImage) {
+            shader = new BitmapShader(scaledImage, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            shaderImage = scaledImage;
+        }
+
+        if (shaderMatrix == null)
+            shaderMatrix = new Matrix();
+
+        float scale = size / scaledImage.getWidth();
+        shaderMatrix.setScale(scale, scale);
+        shaderMatrix.postTranslate(left, top);
+        shader.setLocalMatrix(shaderMatrix);
+        paint.setShader(shader);
+        return true;
+    }
+
+    /**
+     * Draws the item straight from its scaled image, clipping it to a circle with a
+     * shader instead of using a circular bitmap. The canvas has already been transformed
+     * by the matrix from getMatrix(), so this draws in the same coordinates as the
+     * circular bitmap would have.
+     *
+     * @param canvas         the canvas to draw to
+     * @param layout         the current radial layout
+     * @param paint          the paint to draw the image with
+     * @param shadowRadiusDp the size (in dp) of the shadow drawn around the circle
+     */
+    abstract void drawShadedImage(Canvas canvas, RadialLayoutView layout, Paint paint, float shadowRadiusDp);
+
+    /**
+     * Marks the circular bitmap as out of date, so that a new one is created while the
+     * old one is drawn in its place, and ignores any that are already being created.
+     */
+    void invalidateCircleImage() {
+        isCircleImageStale = true;
+        renderSize = 0;
+        scaledRenderSize = 0;
+        renderGeneration++;
+    }
+
+    /**
+     * Discards the scaled and circular bitmaps after something that affects both of them has changed.
+     */
+    void invalidateImages() {
+        replaceScaledImage(null);
+        invalidateCircleImage();
+    }
 
     /**
-     * Creates a Matrix to scale the image to the correct dimensions on a Canvas.
+     * Sets up a Matrix to scale the image to the correct dimensions on a Canvas.
+     *
+     * @param matrix the matrix to write the transformation to, which is reused between items and frames
+     * @return false if the item is not visible and should not be drawn
      */
-    Matrix getMatrix(int canvasWidth, int canvasHeight, float offsetX, float offsetY) {
+    boolean getMatrix(Matrix matrix, int canvasWidth, int canvasHeight, float offsetX, float offsetY) {
         drawnRadius = radius;
         drawnRadian = radian;
         drawnScale = scale;
 
-        float nScale = 0;
-        float distance = (float) Math.sqrt(Math.pow(offsetX + getX() + radius, 2) + Math.pow(offsetY + getY() + radius, 2));
-        int totalRadius = (canvasWidth + canvasHeight) / 4;
-        if (distance < totalRadius) {
-            nScale = Math.min((float) (Math.sqrt(totalRadius - distance) / Math.sqrt(radius * 2)) * scale, scale);
-        }
+        float x = getX(), y = getY();
+        float nScale = RadialMath.getEdgeScale(offsetX + x + radius, offsetY + y + radius, radius, scale, canvasWidth, canvasHeight);
 
         if (nScale > 0) {
-            Matrix matrix = new Matrix();
-            matrix.preScale(nScale, nScale, radius, radius);
-            matrix.postTranslate((canvasWidth / 2) + offsetX + getX(), (canvasHeight / 2) + offsetY + getY());
-            return matrix;
-        } else return null;
+            matrix.setScale(nScale, nScale, radius, radius);
+            matrix.postTranslate((canvasWidth / 2) + offsetX + x, (canvasHeight / 2) + offsetY + y);
+            return true;
+        } else return false;
+    }
+
+    /**
+     * @param x     the x coordinate of the point, relative to the view
+     * @param y     the y coordinate of the point, relative to the view
+     * @param frame the number of the last frame that was drawn
+     * @return whether the item was drawn over the point in that frame
+     */
+    boolean isDrawnAt(float x, float y, long frame) {
+        float differenceX = x - hitX, differenceY = y - hitY;
+        return hitFrame == frame && (differenceX * differenceX) + (differenceY * differenceY) <= hitRadius * hitRadius;
     }
 
     /**
@@ -144,28 +725,90 @@ public abstract class BaseRadialItem {
     boolean needsFrame() {
         return Math.abs(targetRadius - drawnRadius) > 0.01
                 || Math.abs(targetRadian - drawnRadian) > 0.001
-                || (targetScales.size() > 0 && (targetScales.size() > 1 || Math.abs(targetScales.get(0) - drawnScale) > 0.01))
+                || targetScales.needsFrame(drawnScale)
+                || isRemoving;
+    }
+
+    /**
+     * Determines whether the item has not yet reached its targets.
+     *
+     * @return whether the item is still animating
+     */
+    boolean isAnimating() {
+        if (isBound())
+            return store.isAnimating(storeSlot);
+
+        return Math.abs(targetRadius - radius) > 0.01
+                || Math.abs(targetRadian - radian) > 0.001
+                || targetScales.needsFrame(scale)
                 || isRemoving;
     }
 
     /**
      * Updates values to display the next frame of the item.
      *
-     * @param layout the view that the item is to be displayed in
+     * @param remaining the fraction of the distance to the targets that should remain after the frame
      */
-    void nextFrame(final RadialLayoutView layout) {
-        radius = (targetRadius + (radius * 5)) / 6;
-        radian = (targetRadian + (radian * 5)) / 6;
+    void nextFrame(float remaining) {
+        radius = RadialMath.approach(radius, targetRadius, remaining);
+        radian = RadialMath.approach(radian, targetRadian, remaining);
         if (targetScales.size() > 0) {
-            if (targetScales.size() > 1 && Math.abs(scale - targetScales.get(0)) < 0.01)
-                targetScales.remove(0);
-
-            scale = (targetScales.get(0) + (scale * 5)) / 6;
+            scale = RadialMath.approach(scale, targetScales.next(scale), remaining);
             if (scale < 0.02 && isRemoving)
-                layout.items.remove(this);
+                remove();
 
         } else if (isRemoving)
-            layout.items.remove(this);
+            remove();
+    }
+
+    /**
+     * Marks the item as removed once it has finished animating out, so that the
+     * view drops it from the next snapshot that it publishes.
+     */
+    void remove() {
+        isRemoved = true;
+        releaseImages();
+    }
+
+    /**
+     * Moves the animated state of this item into a store, which will then be
+     * responsible for stepping its frames.
+     *
+     * @param store the store to add the item to
+     */
+    void bind(RadialAnimationStore store) {
+        this.store = store;
+        storeSlot = store.add(radius, radian, scale);
+        storeGeneration = store.getGeneration();
+        updateStore();
+    }
+
+    /**
+     * @return whether the item's animated state is held by a store
+     */
+    boolean isBound() {
+        return store != null && store.getGeneration() == storeGeneration;
+    }
+
+    /**
+     * Reads the current animated state of the item from its store.
+     */
+    void syncFromStore() {
+        if (isBound()) {
+            radius = store.getRadius(storeSlot);
+            radian = store.getRadian(storeSlot);
+            scale = store.getScale(storeSlot);
+        }
+    }
+
+    /**
+     * Writes the targets of the item to its store after they have changed.
+     */
+    private void updateStore() {
+        if (isBound()) {
+            store.setTarget(storeSlot, targetRadius, targetRadian);
+            store.setTargetScales(storeSlot, targetScales, isRemoving);
+        }
     }
 
     /**
@@ -176,22 +819,37 @@ public abstract class BaseRadialItem {
      * @param shadowRadius the radius (in dp) of the shadow to be drawn
      */
     void animateTo(BaseRadialItem item, final RadialLayoutView layout, float shadowRadius) {
-        image = item.image;
-        scaledImage = item.scaledImage;
-        circleImage = item.circleImage;
+        // an item without an image has not been bound by its adapter yet, so the current image is kept
+        if (item.hasImage() && (image != item.image || source != item.source)) {
+            // ignore any bitmaps that are still being created for the previous image
+            renderSize = 0;
+            scaledRenderSize = 0;
+            renderGeneration++;
+
+            image = item.image;
+            source = item.source;
+            setImages(item);
+        } else if (item.isCircleImageStale) {
+            // the shadow has changed, but the current bitmaps can still be drawn until new ones are created
+            invalidateImages();
+        }
+
         row = item.row;
+        rowRadius = item.rowRadius;
         size = item.size;
         distance = item.distance;
 
-        float tempRadius = radius;
-        setRadius(item.radius, shadowRadius);
-        getCircleImage(layout, shadowRadius);
-        radius = tempRadius;
-
+        // the bitmaps for the new radius are created on a worker thread as the item is drawn
         targetRadius = item.radius;
         targetRadian = item.radian;
 
-        layout.postInvalidate();
+        if (isRemoving) {
+            isRemoving = false;
+            targetScales.set(1);
+        }
+
+        updateStore();
+        layout.requestFrame();
     }
 
     /**
@@ -200,10 +858,11 @@ public abstract class BaseRadialItem {
      * @param layout the view that the item is to be displayed in
      */
     void clickDown(final RadialLayoutView layout) {
-        targetScales.clear();
-        targetScales.add(RadialLayoutView.CLICK_DOWN_SCALE);
+        targetScales.set(RadialLayoutView.CLICK_DOWN_SCALE);
+        updateStore();
 
-        layout.postInvalidate();
+        if (isAnimating())
+            layout.requestFrame();
     }
 
     /**
@@ -212,10 +871,11 @@ public abstract class BaseRadialItem {
      * @param layout the view that the item is to be displayed in
      */
     void clickUp(final RadialLayoutView layout) {
-        targetScales.clear();
-        targetScales.add(1f);
+        targetScales.set(1);
+        updateStore();
 
-        layout.postInvalidate();
+        if (isAnimating())
+            layout.requestFrame();
     }
 
     /**
@@ -224,11 +884,11 @@ public abstract class BaseRadialItem {
      * @param layout the view that the item is to be displayed in
      */
     void clickBack(final RadialLayoutView layout) {
-        targetScales.clear();
-        targetScales.add(RadialLayoutView.CLICK_UP_SCALE);
-        targetScales.add(1f);
+        targetScales.set(RadialLayoutView.CLICK_UP_SCALE, 1);
+        updateStore();
 
-        layout.postInvalidate();
+        if (isAnimating())
+            layout.requestFrame();
     }
 
     /**
@@ -237,11 +897,11 @@ public abstract class BaseRadialItem {
      * @param layout the layout to be removed from
      */
     void removeFrom(final RadialLayoutView layout) {
-        targetScales.clear();
-        targetScales.add(0f);
+        targetScales.set(0);
         isRemoving = true;
+        updateStore();
 
-        layout.postInvalidate();
+        layout.requestFrame();
     }
 
 }
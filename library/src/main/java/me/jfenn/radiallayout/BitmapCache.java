@@ -0,0 +1,244 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A size-bounded LRU cache of the scaled and circular bitmaps created by items,
+ * so that items which display the same source image at the same size can share
+ * them. A single cache can be shared between multiple views.
+ *
+ * Cached bitmaps are retained in a BitmapPool, and released to it when they are
+ * removed from the cache, so that they can be reused once no item holds them.
+ */
+public class BitmapCache {
+
+    static final int TYPE_SCALED = 0;
+    static final int TYPE_CIRCLE = 1;
+
+    private static BitmapCache defaultCache;
+
+    /**
+     * the cached bitmaps, in order from the least to the most recently used
+     */
+    private LinkedHashMap<Key, Bitmap> entries;
+    private BitmapPool pool;
+
+    private int size;
+    private int maxSize;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * Creates a new cache that returns bitmaps to the default pool.
+     *
+     * @param maxBytes the maximum amount of pixel memory (in bytes) to hold
+     */
+    public BitmapCache(int maxBytes) {
+        this(maxBytes, BitmapPool.getDefault());
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxBytes the maximum amount of pixel memory (in bytes) to hold
+     * @param pool     the pool to take new bitmaps from and return unused ones to, or null to not reuse any bitmaps
+     */
+    public BitmapCache(int maxBytes, @Nullable BitmapPool pool) {
+        this.pool = pool;
+        maxSize = Math.max(maxBytes, 1);
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static int getByteCount(Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * @return a cache shared by every view that has not been given its own, using an eighth of the available memory
+     */
+    public static synchronized BitmapCache getDefault() {
+        if (defaultCache == null)
+            defaultCache = new BitmapCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8));
+
+        return defaultCache;
+    }
+
+    /**
+     * @return the pool that bitmaps are taken from and returned to, or null if bitmaps are not reused
+     */
+    @Nullable
+    public BitmapPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Finds a bitmap in the cache and retains it for the caller, who must release
+     * it to the pool once it is no longer held.
+     *
+     * @param key the key of the bitmap
+     * @return the bitmap, or null if it is not in the cache
+     */
+    @Nullable
+    synchronized Bitmap acquire(@NonNull Key key) {
+        Bitmap bitmap = entries.get(key);
+        if (bitmap != null) {
+            hitCount++;
+            if (pool != null)
+                pool.retain(bitmap);
+        } else missCount++;
+
+        return bitmap;
+    }
+
+    synchronized void put(@NonNull Key key, @NonNull Bitmap bitmap) {
+        if (pool != null)
+            pool.retain(bitmap);
+
+        Bitmap previous = entries.put(key, bitmap);
+        size += getByteCount(bitmap);
+        if (previous != null)
+            remove(previous);
+
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Removes the least recently used bitmaps until the cache holds no more than a certain
+     * amount of pixel memory.
+     */
+    private void trimToSize(int bytes) {
+        Iterator<Bitmap> iterator = entries.values().iterator();
+        while (size > bytes && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            iterator.remove();
+            remove(bitmap);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Stops counting a bitmap that has been taken out of the entries, and releases it to the pool.
+     */
+    private void remove(Bitmap bitmap) {
+        size -= getByteCount(bitmap);
+        if (pool != null)
+            pool.release(bitmap);
+    }
+
+    /**
+     * Removes the least recently used bitmaps that nothing but the cache holds, so that they
+     * can be reused or freed, until a certain amount of pixel memory has been removed. If the
+     * cache does not return its bitmaps to a pool, it can not tell whether anything else holds
+     * them, so the least recently used bitmaps are removed regardless.
+     *
+     * @param bytes the amount of pixel memory (in bytes) to remove
+     * @return the amount of pixel memory (in bytes) that was removed
+     */
+    synchronized long evictUnused(long bytes) {
+        long evicted = 0;
+        Iterator<Bitmap> iterator = entries.values().iterator();
+        while (evicted < bytes && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (pool == null || pool.getReferenceCount(bitmap) <= 1) {
+                iterator.remove();
+                evicted += getByteCount(bitmap);
+                remove(bitmap);
+                evictionCount++;
+            }
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Removes every bitmap from the cache.
+     */
+    public synchronized void clear() {
+        trimToSize(-1);
+    }
+
+    /**
+     * @return the amount of pixel memory (in bytes) currently held by the cache
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the maximum amount of pixel memory (in bytes) that the cache will hold
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the amount of times that a bitmap was found in the cache
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the amount of times that a bitmap was not found in the cache and had to be created
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the amount of bitmaps that have been removed from the cache to stay within its size
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Identifies a bitmap derived from a source image. Sources are compared by
+     * identity and only weakly referenced, so the cache does not keep them alive.
+     */
+    static class Key {
+
+        private WeakReference<Object> source;
+        private int type;
+        private int[] params;
+        private int hashCode;
+
+        /**
+         * @param source the image or ImageSource that the bitmap was created from
+         * @param type   the kind of bitmap, TYPE_SCALED or TYPE_CIRCLE
+         * @param params any dimensions, colors, or other values that affect the bitmap
+         */
+        Key(Object source, int type, int... params) {
+            this.source = new WeakReference<>(source);
+            this.type = type;
+            this.params = params;
+            hashCode = (((System.identityHashCode(source) * 31) + type) * 31) + Arrays.hashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+
+            Key key = (Key) obj;
+            Object source = this.source.get();
+            return source != null && source == key.source.get() && type == key.type && Arrays.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+}
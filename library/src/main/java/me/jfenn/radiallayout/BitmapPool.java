@@ -0,0 +1,281 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A size-bounded pool of unused bitmaps, bucketed by their dimensions and config,
+ * that new bitmaps are taken from instead of being allocated.
+ *
+ * Bitmaps are shared between items and the cache, so they are only returned
+ * to the pool once nothing holds them anymore: anything that keeps a bitmap
+ * calls retain() and later release(), and the bitmap is pooled when the last
+ * holder releases it. Bitmaps that are never released are simply left to the
+ * garbage collector.
+ */
+public class BitmapPool {
+
+    private static BitmapPool defaultPool;
+
+    private Map<Long, ArrayList<Bitmap>> buckets;
+    private LinkedList<Bitmap> order;
+    private WeakHashMap<Bitmap, Holders> references;
+
+    /**
+     * receives the holders of bitmaps that were garbage collected without being released
+     */
+    private ReferenceQueue<Bitmap> collected;
+
+    /**
+     * the amount of pixel memory (in bytes) of the bitmaps that are currently retained
+     */
+    private long heldSize;
+
+    private int size;
+    private int maxSize;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxBytes the maximum amount of pixel memory (in bytes) to hold in unused bitmaps
+     */
+    public BitmapPool(int maxBytes) {
+        maxSize = Math.max(maxBytes, 0);
+        buckets = new HashMap<>();
+        order = new LinkedList<>();
+        references = new WeakHashMap<>();
+        collected = new ReferenceQueue<>();
+    }
+
+    /**
+     * @return a pool shared by every cache that has not been given its own, using a sixteenth of the available memory
+     */
+    public static synchronized BitmapPool getDefault() {
+        if (defaultPool == null)
+            defaultPool = new BitmapPool((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16));
+
+        return defaultPool;
+    }
+
+    private static long getBucket(int width, int height, Bitmap.Config config) {
+        return ((long) width << 32) | ((long) height << 8) | config.ordinal();
+    }
+
+    private static int getByteCount(Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Takes a cleared bitmap with the given dimensions from the pool, or creates a
+     * new one if there are none.
+     *
+     * @param width  the width of the bitmap
+     * @param height the height of the bitmap
+     * @param config the config of the bitmap
+     * @return a mutable, transparent bitmap
+     */
+    @NonNull
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayList<Bitmap> bucket = buckets.get(getBucket(width, height, config));
+            if (bucket != null && bucket.size() > 0) {
+                bitmap = bucket.remove(bucket.size() - 1);
+                order.remove(bitmap);
+                size -= getByteCount(bitmap);
+                hitCount++;
+            } else missCount++;
+        }
+
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        } else return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Returns a bitmap that nothing holds to the pool, so that it can be reused.
+     * This must only be called by the owner of a bitmap that has not been retained.
+     *
+     * @param bitmap the bitmap to reuse
+     */
+    public synchronized void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null)
+            return;
+
+        int byteCount = getByteCount(bitmap);
+        if (byteCount > maxSize)
+            return;
+
+        long key = getBucket(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayList<Bitmap> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(key, bucket);
+        } else if (bucket.contains(bitmap))
+            return;
+
+        bucket.add(bitmap);
+        order.add(bitmap);
+        size += byteCount;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Removes the unused bitmaps that were returned to the pool first, until the pool
+     * holds no more than a certain amount of pixel memory.
+     *
+     * @param bytes the amount of pixel memory (in bytes) to keep at most
+     */
+    public synchronized void trimToSize(int bytes) {
+        while (size > bytes && order.size() > 0) {
+            Bitmap oldest = order.removeFirst();
+            buckets.get(getBucket(oldest.getWidth(), oldest.getHeight(), oldest.getConfig())).remove(oldest);
+            size -= getByteCount(oldest);
+        }
+    }
+
+    /**
+     * Marks a bitmap as being held, so that it is not reused until it is released.
+     *
+     * @param bitmap the bitmap being held
+     */
+    public synchronized void retain(@Nullable Bitmap bitmap) {
+        if (bitmap == null)
+            return;
+
+        expungeCollected();
+        Holders holders = references.get(bitmap);
+        if (holders == null) {
+            holders = new Holders(bitmap, collected);
+            references.put(bitmap, holders);
+            heldSize += holders.byteCount;
+        }
+
+        holders.count++;
+    }
+
+    /**
+     * Stops holding a bitmap, and returns it to the pool if nothing else holds it.
+     * Bitmaps that were not retained through this pool are ignored.
+     *
+     * @param bitmap the bitmap that is no longer held
+     */
+    public synchronized void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null)
+            return;
+
+        expungeCollected();
+        Holders holders = references.get(bitmap);
+        if (holders == null)
+            return;
+
+        if (--holders.count <= 0) {
+            references.remove(bitmap);
+            heldSize -= holders.byteCount;
+            holders.clear();
+            put(bitmap);
+        }
+    }
+
+    /**
+     * Stops counting the bitmaps that were garbage collected while they were still retained.
+     */
+    private void expungeCollected() {
+        Holders holders;
+        while ((holders = (Holders) collected.poll()) != null)
+            heldSize -= holders.byteCount;
+    }
+
+    /**
+     * @return the amount of holders that have retained a bitmap and not released it yet
+     */
+    synchronized int getReferenceCount(@NonNull Bitmap bitmap) {
+        Holders holders = references.get(bitmap);
+        return holders != null ? holders.count : 0;
+    }
+
+    /**
+     * Counts the bitmaps that are currently retained by anything, such as items and caches,
+     * as they are retained and released, so that this does not have to visit them.
+     *
+     * @return the amount of pixel memory (in bytes) of the bitmaps that are held
+     */
+    public synchronized long getHeldSize() {
+        expungeCollected();
+        return heldSize;
+    }
+
+    /**
+     * Removes every unused bitmap from the pool.
+     */
+    public synchronized void clear() {
+        buckets.clear();
+        order.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the amount of pixel memory (in bytes) held by unused bitmaps in the pool
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the maximum amount of pixel memory (in bytes) that the pool will hold
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the amount of bitmaps that were reused from the pool
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the amount of bitmaps that had to be allocated because the pool had none of the right size
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the fraction of requested bitmaps that were reused from the pool, between 0 and 1
+     */
+    public synchronized float getReuseRate() {
+        int requests = hitCount + missCount;
+        return requests > 0 ? (float) hitCount / requests : 0;
+    }
+
+    /**
+     * The amount of holders of a retained bitmap, which only weakly references it, so
+     * that a bitmap which is never released stops being counted once it is collected.
+     */
+    private static class Holders extends WeakReference<Bitmap> {
+
+        private final int byteCount;
+        private int count;
+
+        private Holders(Bitmap bitmap, ReferenceQueue<Bitmap> queue) {
+            super(bitmap, queue);
+            byteCount = getByteCount(bitmap);
+        }
+    }
+
+}
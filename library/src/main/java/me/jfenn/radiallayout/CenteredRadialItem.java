@@ -5,10 +5,10 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.media.ThumbnailUtils;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawable;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawableFactory;
 
+import me.jfenn.radiallayout.engine.RadialMath;
 import me.jfenn.radiallayout.utils.ConversionUtils;
 import me.jfenn.radiallayout.utils.ImageUtils;
 
@@ -20,7 +20,15 @@ public class CenteredRadialItem extends BaseRadialItem {
 
     public CenteredRadialItem(Bitmap image, int sizeDp) {
         super("", image, sizeDp, 0);
+        init();
+    }
+
+    public CenteredRadialItem(ImageSource source, int sizeDp) {
+        super("", source, sizeDp, 0);
+        init();
+    }
 
+    private void init() {
         outlinePaint = new Paint();
         outlinePaint.setAntiAlias(true);
         outlinePaint.setDither(true);
@@ -46,8 +54,7 @@ public class CenteredRadialItem extends BaseRadialItem {
 
         outlinePaint.setStrokeWidth(ConversionUtils.dpToPx(weight));
         outlinePaint.setColor(color);
-        scaledImage = null;
-        circleImage = null;
+        invalidateImages();
     }
 
     @Override
@@ -55,42 +62,80 @@ public class CenteredRadialItem extends BaseRadialItem {
         return new CenteredRadialItem(this);
     }
 
-    @Override
-    void setRadius(float radius, float shadowSizeDp) {
+    /**
+     * @return the radius of the image inside of the outline and shadow
+     */
+    private float getImageRadius(float radius, float shadowSizeDp) {
         int shadowSize = ConversionUtils.dpToPx(shadowSizeDp);
-        float imageRadius = radius - Math.max(shadowSize, ConversionUtils.dpToPx(outlineRadius + outlineWeight));
-        if (radius > imageRadius && (scaledImage == null || scaledImage.getWidth() != imageRadius * 2 || scaledImage.getHeight() != imageRadius * 2))
-            scaledImage = ThumbnailUtils.extractThumbnail(image, (int) (imageRadius * 2), (int) (imageRadius * 2));
-        this.radius = radius;
-        targetRadius = radius;
+        return radius - Math.max(shadowSize, ConversionUtils.dpToPx(outlineRadius + outlineWeight));
+    }
+
+    @Override
+    int getScaledImageSize(float radius, float shadowSizeDp) {
+        float imageRadius = getImageRadius(radius, shadowSizeDp);
+        return radius > imageRadius && imageRadius > 0 ? (int) (imageRadius * 2) : 0;
     }
 
     @Override
-    Bitmap getCircleImage(RadialLayoutView layout, float shadowRadiusDp) {
-        if (circleImage == null || circleImage.getWidth() != radius * 2 || circleImage.getHeight() != radius * 2) {
-            if (scaledImage == null)
-                setRadius(radius, shadowRadiusDp);
-
-            int outlineWeight = ConversionUtils.dpToPx(this.outlineWeight);
-            int imageOffset = Math.max(ConversionUtils.dpToPx(this.outlineRadius) + outlineWeight, ConversionUtils.dpToPx(shadowRadiusDp));
-
-            RoundedBitmapDrawable roundedBitmapDrawable = RoundedBitmapDrawableFactory.create(layout.getResources(), scaledImage);
-            roundedBitmapDrawable.setCornerRadius(radius);
-            roundedBitmapDrawable.setAntiAlias(true);
-
-            Bitmap roundedBitmap = ImageUtils.drawableToBitmap(roundedBitmapDrawable);
-            if (imageOffset > 0) {
-                circleImage = Bitmap.createBitmap(roundedBitmap.getWidth() + (imageOffset * 2), roundedBitmap.getHeight() + (imageOffset * 2), Bitmap.Config.ARGB_4444);
-                Canvas canvas = new Canvas(circleImage);
-                canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - outlineWeight - 1, outlinePaint);
-                canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - imageOffset - 1, layout.getShadowPaint());
-                canvas.drawBitmap(roundedBitmap, imageOffset, imageOffset, layout.getPaint());
-            } else circleImage = roundedBitmap;
+    Bitmap createCircleImage(CircleStyle style, Bitmap scaledImage, float radius, float shadowRadiusDp) {
+        int size = (int) (radius * 2);
+        int outlineWeight = ConversionUtils.dpToPx(this.outlineWeight);
+        int imageOffset = Math.max(ConversionUtils.dpToPx(this.outlineRadius) + outlineWeight, ConversionUtils.dpToPx(shadowRadiusDp));
+
+        BitmapCache.Key key = null;
+        if (cache != null) {
+            key = new BitmapCache.Key(getImageKey(), BitmapCache.TYPE_CIRCLE, size, scaledImage.getWidth(), imageOffset,
+                    style.shadowRadius, style.shadowOffset, style.shadowColor,
+                    outlineWeight, this.outlineRadius, outlinePaint.getColor());
+
+            Bitmap bitmap = cache.acquire(key);
+            if (bitmap != null)
+                return bitmap;
         }
 
+        RoundedBitmapDrawable roundedBitmapDrawable = RoundedBitmapDrawableFactory.create(style.resources, scaledImage);
+        roundedBitmapDrawable.setCornerRadius(radius);
+        roundedBitmapDrawable.setAntiAlias(true);
+
+        BitmapPool pool = getPool();
+        Bitmap circleImage;
+        Bitmap roundedBitmap = ImageUtils.drawableToBitmap(roundedBitmapDrawable, pool);
+        if (imageOffset > 0) {
+            circleImage = ImageUtils.createBitmap(pool, roundedBitmap.getWidth() + (imageOffset * 2), roundedBitmap.getHeight() + (imageOffset * 2), Bitmap.Config.ARGB_4444);
+            Canvas canvas = new Canvas(circleImage);
+            canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - outlineWeight - 1, outlinePaint);
+            canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - imageOffset - 1, style.shadowPaint);
+            canvas.drawBitmap(roundedBitmap, imageOffset, imageOffset, style.paint);
+
+            // the rounded bitmap has only been drawn into the circle image, so nothing else holds it
+            if (pool != null)
+                pool.put(roundedBitmap);
+        } else circleImage = roundedBitmap;
+
+        onBitmapCreated(circleImage);
+        retain(circleImage);
+        if (key != null)
+            cache.put(key, circleImage);
+
         return circleImage;
     }
 
+    @Override
+    void drawShadedImage(Canvas canvas, RadialLayoutView layout, Paint paint, float shadowRadiusDp) {
+        int outlineWeight = ConversionUtils.dpToPx(this.outlineWeight);
+        int imageOffset = Math.max(ConversionUtils.dpToPx(this.outlineRadius) + outlineWeight, ConversionUtils.dpToPx(shadowRadiusDp));
+        float imageRadius = getScaledImageSize(radius, shadowRadiusDp) / 2f;
+        float center = imageRadius + imageOffset;
+
+        if (imageOffset > 0) {
+            canvas.drawCircle(center, center, center - outlineWeight - 1, outlinePaint);
+            layout.drawShadow(canvas, center, center, imageRadius - 1);
+        }
+
+        if (setShader(paint, imageOffset, imageOffset, imageRadius * 2))
+            canvas.drawCircle(center, center, imageRadius, paint);
+    }
+
     @Override
     float getX() {
         return 0;
@@ -102,23 +147,17 @@ public class CenteredRadialItem extends BaseRadialItem {
     }
 
     @Override
-    Matrix getMatrix(int canvasWidth, int canvasHeight, float offsetX, float offsetY) {
+    boolean getMatrix(Matrix matrix, int canvasWidth, int canvasHeight, float offsetX, float offsetY) {
         drawnRadius = radius;
         drawnRadian = radian;
         drawnScale = scale;
 
-        float nScale = 0;
-        float distance = (float) Math.sqrt(Math.pow(offsetX + getX() + radius, 2) + Math.pow(offsetY + getY() + radius, 2));
-        int totalRadius = (canvasWidth + canvasHeight) / 4;
-        if (distance < totalRadius) {
-            nScale = Math.min((float) (Math.sqrt(totalRadius - distance) / Math.sqrt(radius * 2)) * scale, scale);
-        }
+        float nScale = RadialMath.getEdgeScale(offsetX + radius, offsetY + radius, radius, scale, canvasWidth, canvasHeight);
 
         if (nScale > 0) {
-            Matrix matrix = new Matrix();
-            matrix.preScale(nScale, nScale, radius, radius);
+            matrix.setScale(nScale, nScale, radius, radius);
             matrix.postTranslate((canvasWidth / 2) - radius + offsetX, (canvasHeight / 2) - radius + offsetY);
-            return matrix;
-        } else return null;
+            return true;
+        } else return false;
     }
 }
@@ -0,0 +1,416 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import me.jfenn.radiallayout.engine.AtlasPacker;
+
+/**
+ * Packs the circular bitmaps of items, and the smaller copies of them in their
+ * mip chains, into a few large pages, so that items can be drawn as regions of
+ * a shared bitmap instead of switching to a new bitmap for every item. Bitmaps
+ * are queued while items are drawn, once they have stopped changing size, and
+ * packed in batches between frames, so that a page is only redrawn (and uploaded
+ * again) once per batch. Cells are freed and reused as items are removed; once
+ * more space has been freed than is in use, every bitmap is queued to be packed
+ * again.
+ *
+ * Items keep their own bitmaps after they have been packed, as their mips are
+ * created from them and they are drawn from them again whenever they change size,
+ * so the atlas holds a copy of the pixels of every packed bitmap in addition to
+ * them, along with the unused space of each page of PAGE_SIZE x PAGE_SIZE ARGB
+ * pixels (4 MB).
+ */
+public class CircleAtlas {
+
+    static final int PAGE_SIZE = 1024;
+
+    /**
+     * the largest bitmap (in px) that is packed, as larger ones would waste too much of a page
+     */
+    static final int MAX_ITEM_SIZE = 256;
+
+    /**
+     * the most bitmaps that are packed at once, so that a batch does not hold up the next frame
+     */
+    static final int BATCH_SIZE = 32;
+
+    private static final int SHELF_STEP = 8;
+
+    private AtlasPacker packer;
+    private List<Bitmap> pages;
+    private List<Canvas> canvases;
+    private BaseRadialItem[] slotItems;
+    private int[] slotLevels;
+
+    /**
+     * the bitmaps that are waiting to be packed by the next batch, in the order that they were queued
+     */
+    private BaseRadialItem[] queuedItems;
+    private int[] queuedLevels;
+    private Bitmap[] queuedBitmaps;
+    private int queuedCount;
+
+    private Paint clearPaint;
+    private Rect source;
+    private RectF destination;
+
+    private int mark;
+    private int repackCount;
+
+    CircleAtlas() {
+        packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE, SHELF_STEP);
+        pages = new ArrayList<>();
+        canvases = new ArrayList<>();
+        slotItems = new BaseRadialItem[16];
+        slotLevels = new int[16];
+        queuedItems = new BaseRadialItem[16];
+        queuedLevels = new int[16];
+        queuedBitmaps = new Bitmap[16];
+
+        clearPaint = new Paint();
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        source = new Rect();
+        destination = new RectF();
+    }
+
+    /**
+     * @param level the level of the item's mip chain, or 0 for its circular bitmap
+     * @return whether the item has been packed with its current bitmap for the level
+     */
+    boolean isPacked(BaseRadialItem item, int level, Bitmap bitmap) {
+        return item.atlas == this && item.atlasImages[level] == bitmap;
+    }
+
+    /**
+     * Queues the bitmap of an item to be packed by the next call to packQueued(), unless
+     * it is already queued. This does not allocate, so it can be called while drawing.
+     *
+     * @param item   the item to pack
+     * @param level  the level of the item's mip chain, or 0 for its circular bitmap
+     * @param bitmap the bitmap of the item for the level
+     */
+    void queue(BaseRadialItem item, int level, Bitmap bitmap) {
+        int mask = 1 << level;
+        if ((item.atlasQueued & mask) != 0 || Math.max(bitmap.getWidth(), bitmap.getHeight()) > MAX_ITEM_SIZE)
+            return;
+
+        if (queuedCount == queuedItems.length) {
+            int capacity = queuedCount * 2;
+            queuedItems = Arrays.copyOf(queuedItems, capacity);
+            queuedLevels = Arrays.copyOf(queuedLevels, capacity);
+            queuedBitmaps = Arrays.copyOf(queuedBitmaps, capacity);
+        }
+
+        item.atlasQueued |= mask;
+        queuedItems[queuedCount] = item;
+        queuedLevels[queuedCount] = level;
+        queuedBitmaps[queuedCount] = bitmap;
+        queuedCount++;
+    }
+
+    /**
+     * @return whether there are bitmaps waiting to be packed
+     */
+    boolean hasQueued() {
+        return queuedCount > 0;
+    }
+
+    /**
+     * Packs up to BATCH_SIZE of the queued bitmaps, skipping any that their items have
+     * replaced since they were queued. This must not be called while drawing a frame.
+     *
+     * @return the amount of bitmaps that were packed
+     */
+    int packQueued() {
+        int count = Math.min(queuedCount, BATCH_SIZE);
+        int packed = 0;
+        for (int i = 0; i < count; i++) {
+            BaseRadialItem item = queuedItems[i];
+            int level = queuedLevels[i];
+            Bitmap bitmap = queuedBitmaps[i];
+            queuedItems[i] = null;
+            queuedBitmaps[i] = null;
+
+            item.atlasQueued &= ~(1 << level);
+            if (bitmap == item.getCircleLevelImage(level) && !item.isCircleImageStale && !item.isAnimating() && pack(item, level, bitmap))
+                packed++;
+        }
+
+        queuedCount -= count;
+        System.arraycopy(queuedItems, count, queuedItems, 0, queuedCount);
+        System.arraycopy(queuedLevels, count, queuedLevels, 0, queuedCount);
+        System.arraycopy(queuedBitmaps, count, queuedBitmaps, 0, queuedCount);
+        Arrays.fill(queuedItems, queuedCount, queuedCount + count, null);
+        Arrays.fill(queuedBitmaps, queuedCount, queuedCount + count, null);
+
+        // pages that are left empty after a repack are only removed once it has finished
+        if (queuedCount == 0) {
+            while (pages.size() > packer.getPageCount()) {
+                pages.remove(pages.size() - 1);
+                canvases.remove(canvases.size() - 1);
+            }
+        }
+
+        return packed;
+    }
+
+    /**
+     * Packs the bitmap of an item into the atlas, replacing any previous bitmap of the item
+     * for the same level.
+     *
+     * @return false if the bitmap is too large to be packed
+     */
+    private boolean pack(BaseRadialItem item, int level, Bitmap bitmap) {
+        remove(item, level);
+
+        int size = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        int slot = size <= MAX_ITEM_SIZE ? packer.allocate(size) : -1;
+        if (slot < 0)
+            return false;
+
+        if (item.atlas != this) {
+            // an item is only ever packed into one atlas, so its levels are reset when it moves to another
+            if (item.atlas != null)
+                item.atlas.remove(item);
+
+            item.atlas = this;
+            if (item.atlasSlots == null) {
+                item.atlasSlots = new int[BaseRadialItem.MIP_LEVELS];
+                item.atlasImages = new Bitmap[BaseRadialItem.MIP_LEVELS];
+            }
+
+            Arrays.fill(item.atlasSlots, -1);
+        }
+
+        item.retain(bitmap);
+        item.atlasImages[level] = bitmap;
+        setSlot(item, level, slot);
+        return true;
+    }
+
+    private void setSlot(BaseRadialItem item, int level, int slot) {
+        if (slot >= slotItems.length) {
+            int capacity = Math.max(slot + 1, slotItems.length * 2);
+            slotItems = Arrays.copyOf(slotItems, capacity);
+            slotLevels = Arrays.copyOf(slotLevels, capacity);
+        }
+
+        slotItems[slot] = item;
+        slotLevels[slot] = level;
+        item.atlasSlots[level] = slot;
+
+        int page = packer.getPage(slot);
+        while (pages.size() <= page) {
+            Bitmap bitmap = Bitmap.createBitmap(PAGE_SIZE, PAGE_SIZE, Bitmap.Config.ARGB_8888);
+            pages.add(bitmap);
+            canvases.add(new Canvas(bitmap));
+        }
+
+        // the cell is cleared first, so pages never need to be erased when their cells are reused
+        int x = packer.getX(slot), y = packer.getY(slot), cellSize = packer.getCellSize(slot);
+        Canvas canvas = canvases.get(page);
+        canvas.drawRect(x, y, x + cellSize, y + cellSize, clearPaint);
+        canvas.drawBitmap(item.atlasImages[level], x, y, null);
+    }
+
+    /**
+     * Frees the cells of an item, if it has any.
+     *
+     * @param item the item to remove from the atlas
+     */
+    void remove(BaseRadialItem item) {
+        if (item.atlas != this)
+            return;
+
+        for (int level = 0; level < BaseRadialItem.MIP_LEVELS; level++)
+            remove(item, level);
+
+        item.atlas = null;
+    }
+
+    private void remove(BaseRadialItem item, int level) {
+        if (item.atlas != this || item.atlasSlots[level] < 0)
+            return;
+
+        int slot = item.atlasSlots[level];
+        packer.free(slot);
+        slotItems[slot] = null;
+        item.release(item.atlasImages[level]);
+        item.atlasImages[level] = null;
+        item.atlasSlots[level] = -1;
+    }
+
+    /**
+     * Draws a bitmap of an item from the atlas.
+     *
+     * @param canvas the canvas to draw to
+     * @param item   the item to draw
+     * @param level  the level of the item's mip chain, which must have been packed
+     * @param matrix the transformation from the bitmap to the canvas, which must not rotate it
+     * @param paint  the paint to draw the item with
+     */
+    void draw(Canvas canvas, BaseRadialItem item, int level, Matrix matrix, Paint paint) {
+        int slot = item.atlasSlots[level];
+        Bitmap bitmap = item.atlasImages[level];
+        int x = packer.getX(slot), y = packer.getY(slot);
+        source.set(x, y, x + bitmap.getWidth(), y + bitmap.getHeight());
+        destination.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        matrix.mapRect(destination);
+        canvas.drawBitmap(pages.get(packer.getPage(slot)), source, destination, paint);
+    }
+
+    /**
+     * Frees the cells of any items that are no longer displayed, and queues every
+     * bitmap to be packed again if too much space has been freed.
+     *
+     * @param items the items that are displayed
+     */
+    void update(List<BaseRadialItem> items) {
+        mark++;
+        for (BaseRadialItem item : items)
+            item.atlasMark = mark;
+
+        for (BaseRadialItem item : slotItems) {
+            if (item != null && item.atlasMark != mark)
+                remove(item);
+        }
+
+        int count = 0;
+        for (int i = 0; i < queuedCount; i++) {
+            BaseRadialItem item = queuedItems[i];
+            if (item.atlasMark == mark) {
+                queuedItems[count] = item;
+                queuedLevels[count] = queuedLevels[i];
+                queuedBitmaps[count] = queuedBitmaps[i];
+                count++;
+            } else item.atlasQueued = 0;
+        }
+
+        Arrays.fill(queuedItems, count, queuedCount, null);
+        Arrays.fill(queuedBitmaps, count, queuedCount, null);
+        queuedCount = count;
+
+        if (packer.getFreeCellArea() > packer.getUsedArea())
+            repack();
+    }
+
+    /**
+     * Frees every cell, and queues the bitmaps that were packed to be packed again, from
+     * the largest to the smallest. The items are drawn from their own bitmaps until then,
+     * so the pages are redrawn over several batches rather than all at once.
+     */
+    private void repack() {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < slotItems.length; slot++) {
+            if (slotItems[slot] != null)
+                slots.add(slot);
+        }
+
+        Collections.sort(slots, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return getBitmapSize(o2) - getBitmapSize(o1);
+            }
+        });
+
+        for (int slot : slots) {
+            BaseRadialItem item = slotItems[slot];
+            int level = slotLevels[slot];
+            queue(item, level, item.atlasImages[level]);
+            remove(item, level);
+        }
+
+        packer.reset();
+        repackCount++;
+    }
+
+    private int getBitmapSize(int slot) {
+        Bitmap bitmap = slotItems[slot].atlasImages[slotLevels[slot]];
+        return Math.max(bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * Removes every item and page from the atlas.
+     */
+    void clear() {
+        for (BaseRadialItem item : slotItems) {
+            if (item != null)
+                remove(item);
+        }
+
+        for (int i = 0; i < queuedCount; i++) {
+            queuedItems[i].atlasQueued = 0;
+            queuedItems[i] = null;
+            queuedBitmaps[i] = null;
+        }
+
+        queuedCount = 0;
+        packer.reset();
+        pages.clear();
+        canvases.clear();
+    }
+
+    /**
+     * @return the amount of pages that items are packed into
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @return the amount of pixel memory (in bytes) held by the pages, which does not include the items' own bitmaps
+     */
+    public int getByteCount() {
+        return pages.size() * PAGE_SIZE * PAGE_SIZE * 4;
+    }
+
+    /**
+     * @return the amount of bitmaps that are packed into the atlas
+     */
+    public int getItemCount() {
+        return packer.getUsedCount();
+    }
+
+    /**
+     * @return the amount of bitmaps that are waiting to be packed into the atlas
+     */
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * @return the fraction of the space that has been started in the pages which is not covered by items, between 0 and 1
+     */
+    public float getFragmentation() {
+        return packer.getFragmentation();
+    }
+
+    /**
+     * @return the fraction of the space that has been started in the pages which was freed by removed items and not yet reused, between 0 and 1
+     */
+    public float getFreedFraction() {
+        long shelfArea = packer.getShelfArea();
+        return shelfArea > 0 ? (float) packer.getFreeCellArea() / shelfArea : 0;
+    }
+
+    /**
+     * @return the amount of times that every item has been packed again to reclaim freed space
+     */
+    public int getRepackCount() {
+        return repackCount;
+    }
+
+}
@@ -0,0 +1,94 @@
+package me.jfenn.radiallayout;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+/**
+ * A pool of background threads that the bitmaps of items are created on, so
+ * that drawing a frame never has to wait for them. The pool is shared by every
+ * view and created when it is first needed.
+ *
+ * Tasks are queued through a link in the task itself rather than a queue node,
+ * as they are queued while a frame is drawn, which must not allocate. A task can
+ * only be in the queue once, which ItemRenderTask ensures by not queueing itself
+ * again until it has run.
+ */
+class CircleImageRenderer {
+
+    private static final Object lock = new Object();
+
+    private static ItemRenderTask head;
+    private static ItemRenderTask tail;
+    private static boolean isStarted;
+
+    /**
+     * Runs a task on one of the worker threads.
+     *
+     * @param task the task to run, which must not already be queued
+     */
+    static void execute(@NonNull ItemRenderTask task) {
+        synchronized (lock) {
+            if (!isStarted) {
+                isStarted = true;
+                int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+                for (int i = 0; i < threads; i++)
+                    startWorker(i);
+            }
+
+            task.nextQueued = null;
+            if (tail != null)
+                tail.nextQueued = task;
+            else head = task;
+
+            tail = task;
+            lock.notify();
+        }
+    }
+
+    /**
+     * Waits for the next task in the queue and removes it.
+     */
+    private static ItemRenderTask take() throws InterruptedException {
+        synchronized (lock) {
+            while (head == null)
+                lock.wait();
+
+            ItemRenderTask task = head;
+            head = task.nextQueued;
+            if (head == null)
+                tail = null;
+
+            task.nextQueued = null;
+            return task;
+        }
+    }
+
+    private static void startWorker(int index) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                while (true) {
+                    ItemRenderTask task;
+                    try {
+                        task = take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // the worker is kept, as the pool never replaces the threads that it has lost
+                        Log.w("RadialLayout", "A render task failed", e);
+                    }
+                }
+            }
+        }, "RadialLayout-render-" + index);
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+}
@@ -0,0 +1,47 @@
+package me.jfenn.radiallayout;
+
+import android.content.res.Resources;
+import android.graphics.Paint;
+
+import me.jfenn.radiallayout.utils.ConversionUtils;
+
+/**
+ * The values of a view that circular bitmaps are created with, which are copied
+ * on the main thread when a bitmap is requested, so that the render threads never
+ * read them from the view while it could be changing them.
+ */
+final class CircleStyle {
+
+    final Paint paint = new Paint();
+    final Paint shadowPaint = new Paint();
+    Resources resources;
+
+    /**
+     * the shadow of the view, in px, which is part of the cache key of a circular bitmap
+     */
+    int shadowRadius;
+    int shadowOffset;
+    int shadowColor;
+
+    /**
+     * Copies the values of a view. This must be called on the main thread.
+     */
+    void set(RadialLayoutView layout) {
+        paint.set(layout.getPaint());
+        shadowPaint.set(layout.getShadowPaint());
+        resources = layout.getResources();
+        shadowRadius = ConversionUtils.dpToPx(layout.getShadowRadius());
+        shadowOffset = ConversionUtils.dpToPx(layout.getShadowOffset());
+        shadowColor = layout.getShadowColor();
+    }
+
+    void set(CircleStyle style) {
+        paint.set(style.paint);
+        shadowPaint.set(style.shadowPaint);
+        resources = style.resources;
+        shadowRadius = style.shadowRadius;
+        shadowOffset = style.shadowOffset;
+        shadowColor = style.shadowColor;
+    }
+
+}
@@ -0,0 +1,154 @@
+package me.jfenn.radiallayout;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import me.jfenn.radiallayout.utils.ImageUtils;
+
+/**
+ * An encoded image that an item can be created from instead of a Bitmap. The image
+ * is only decoded on a worker thread once the item needs it, and is subsampled while
+ * it is decoded so that it is never held in memory at its full resolution.
+ *
+ * Other kinds of sources can be created by overriding openStream().
+ */
+public abstract class ImageSource {
+
+    /**
+     * Opens a new stream of the encoded image. This is called on a worker thread, at
+     * least twice for every size that the image is decoded at.
+     *
+     * @return a stream of the encoded image, which is closed once it has been read
+     * @throws IOException if the image cannot be read
+     */
+    @NonNull
+    protected abstract InputStream openStream() throws IOException;
+
+    /**
+     * Decodes the image, subsampled by the largest power of two that keeps it at least
+     * as large as the requested size, and then scales and crops its center to fill it.
+     *
+     * @param width  the width to decode the image at
+     * @param height the height to decode the image at
+     * @param pool   the pool to take the result from, or null to allocate a new one
+     * @return the decoded image, or null if it could not be read
+     */
+    @Nullable
+    Bitmap decode(int width, int height, @Nullable BitmapPool pool) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeBitmap(options);
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            return null;
+
+        options.inSampleSize = ImageUtils.getSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = decodeBitmap(options);
+        if (decoded == null)
+            return null;
+
+        Bitmap bitmap = ImageUtils.extractThumbnail(decoded, width, height, pool);
+        decoded.recycle();
+        return bitmap;
+    }
+
+    @Nullable
+    private Bitmap decodeBitmap(BitmapFactory.Options options) {
+        InputStream stream = null;
+        try {
+            stream = openStream();
+            return BitmapFactory.decodeStream(stream, null, options);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file an image file
+     * @return a source that reads the image from the file
+     */
+    public static ImageSource fromFile(final File file) {
+        return new ImageSource() {
+            @NonNull
+            @Override
+            protected InputStream openStream() throws IOException {
+                return new BufferedInputStream(new FileInputStream(file));
+            }
+        };
+    }
+
+    /**
+     * @param context a context to open the uri with
+     * @param uri     a content, file, or android.resource uri of an image
+     * @return a source that reads the image from the uri
+     */
+    public static ImageSource fromUri(Context context, final Uri uri) {
+        final ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        return new ImageSource() {
+            @NonNull
+            @Override
+            protected InputStream openStream() throws IOException {
+                InputStream stream = resolver.openInputStream(uri);
+                if (stream == null)
+                    throw new IOException("Cannot open " + uri);
+
+                return stream;
+            }
+        };
+    }
+
+    /**
+     * @param resources the resources to read the image from
+     * @param id        the id of a bitmap drawable resource, which is read without any density scaling
+     * @return a source that reads the image from the resource
+     */
+    public static ImageSource fromResource(final Resources resources, @DrawableRes final int id) {
+        return new ImageSource() {
+            @NonNull
+            @Override
+            protected InputStream openStream() throws IOException {
+                try {
+                    return resources.openRawResource(id);
+                } catch (Resources.NotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param data an encoded image, which must not be modified afterwards
+     * @return a source that reads the image from the data
+     */
+    public static ImageSource fromBytes(final byte[] data) {
+        return new ImageSource() {
+            @NonNull
+            @Override
+            protected InputStream openStream() {
+                return new ByteArrayInputStream(data);
+            }
+        };
+    }
+
+}
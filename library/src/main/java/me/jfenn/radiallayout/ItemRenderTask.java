@@ -0,0 +1,417 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.support.annotation.Nullable;
+
+import me.jfenn.radiallayout.utils.ImageUtils;
+
+/**
+ * Creates the bitmaps of a single item on the CircleImageRenderer threads, and
+ * delivers them back to the item on the main thread. Each item reuses one task,
+ * so that requesting a bitmap while a frame is drawn does not allocate: a request
+ * that is made while the task is already queued replaces the one of the same kind
+ * that has not started yet, and only the latest result of each kind is delivered.
+ */
+final class ItemRenderTask implements Runnable {
+
+    /**
+     * the style that each worker creates circular bitmaps with, copied from the one of a
+     * request while it is taken, so that the view is never read off the main thread
+     */
+    private static final ThreadLocal<CircleStyle> WORKER_STYLES = new ThreadLocal<CircleStyle>() {
+        @Override
+        protected CircleStyle initialValue() {
+            return new CircleStyle();
+        }
+    };
+
+    private final BaseRadialItem item;
+    private RadialLayoutView layout;
+
+    private final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    private boolean isQueued;
+    private boolean isDeliveryPosted;
+
+    /**
+     * the next task in the queue of CircleImageRenderer, which is only read or written while holding its lock
+     */
+    ItemRenderTask nextQueued;
+
+    // requests, made on the main thread and taken by the worker
+    private boolean isCircleRequested;
+    private int circleSize;
+    private float circleRadius;
+    private float circleShadowDp;
+    private int circleGeneration;
+    private Bitmap previousScaledImage;
+    private CircleStyle circleStyle;
+
+    private boolean isScaledRequested;
+    private int scaledSize;
+    private float scaledShadowDp;
+    private int scaledGeneration;
+
+    private boolean isMipRequested;
+    private Bitmap mipSource;
+    private int mipLevels;
+
+    // results, made by the worker and taken on the main thread
+    private boolean hasCircleResult;
+    private Bitmap resultScaledImage;
+    private Bitmap resultCircleImage;
+    private int resultCircleSize;
+    private int resultCircleGeneration;
+
+    private boolean hasScaledResult;
+    private Bitmap resultScaled;
+    private float resultScaledShadowDp;
+    private int resultScaledGeneration;
+
+    private boolean hasMipResult;
+    private Bitmap resultMipSource;
+    private final Bitmap[] resultMips = new Bitmap[BaseRadialItem.MIP_LEVELS];
+
+    /**
+     * only used by the worker
+     */
+    private final Bitmap[] workerMips = new Bitmap[BaseRadialItem.MIP_LEVELS];
+
+    /**
+     * only used on the main thread
+     */
+    private final Bitmap[] deliveredMips = new Bitmap[BaseRadialItem.MIP_LEVELS];
+
+    ItemRenderTask(BaseRadialItem item) {
+        this.item = item;
+    }
+
+    /**
+     * Requests a circular bitmap, along with the scaled image that it is created from. The
+     * style of the layout is copied here, as it can be changed while the bitmap is created.
+     *
+     * @param previousScaledImage the current scaled image of the item, which has been retained for the task, to use if a new one can not be created
+     */
+    synchronized void requestCircle(RadialLayoutView layout, int size, float radius, float shadowRadiusDp, int generation, @Nullable Bitmap previousScaledImage) {
+        if (isCircleRequested)
+            item.release(this.previousScaledImage);
+
+        isCircleRequested = true;
+        circleSize = size;
+        circleRadius = radius;
+        circleShadowDp = shadowRadiusDp;
+        circleGeneration = generation;
+        this.previousScaledImage = previousScaledImage;
+        if (circleStyle == null)
+            circleStyle = new CircleStyle();
+
+        circleStyle.set(layout);
+        queue(layout);
+    }
+
+    /**
+     * Requests a scaled image to draw through a shader.
+     */
+    synchronized void requestScaled(RadialLayoutView layout, int size, float shadowSizeDp, int generation) {
+        isScaledRequested = true;
+        scaledSize = size;
+        scaledShadowDp = shadowSizeDp;
+        scaledGeneration = generation;
+        queue(layout);
+    }
+
+    /**
+     * Requests the levels of the mip chain of a circular bitmap, up to a level.
+     *
+     * @param source the circular bitmap, which has been retained for the task
+     */
+    synchronized void requestMips(RadialLayoutView layout, Bitmap source, int levels) {
+        if (isMipRequested)
+            item.release(mipSource);
+
+        isMipRequested = true;
+        mipSource = source;
+        mipLevels = levels;
+        queue(layout);
+    }
+
+    private void queue(RadialLayoutView layout) {
+        this.layout = layout;
+        if (!isQueued) {
+            isQueued = true;
+            CircleImageRenderer.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean isFinished = false;
+        try {
+            while (!isFinished)
+                isFinished = runRequests();
+        } finally {
+            // if anything escaped, the next request queues the task again instead of waiting for this run
+            if (!isFinished) {
+                synchronized (this) {
+                    isQueued = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the current requests and creates their bitmaps.
+     *
+     * @return true if there were no requests left, and the task is no longer queued
+     */
+    private boolean runRequests() {
+        RadialLayoutView layout;
+        boolean isCircle, isScaled, isMip;
+        int circleSize = 0, circleGeneration = 0, scaledSize = 0, scaledGeneration = 0, mipLevels = 0;
+        float circleRadius = 0, circleShadowDp = 0, scaledShadowDp = 0;
+        Bitmap previousScaledImage = null, mipSource = null;
+        CircleStyle style = null;
+
+        synchronized (this) {
+            if (!isCircleRequested && !isScaledRequested && !isMipRequested) {
+                isQueued = false;
+                return true;
+            }
+
+            layout = this.layout;
+            isCircle = isCircleRequested;
+            if (isCircle) {
+                circleSize = this.circleSize;
+                circleRadius = this.circleRadius;
+                circleShadowDp = this.circleShadowDp;
+                circleGeneration = this.circleGeneration;
+                previousScaledImage = this.previousScaledImage;
+                this.previousScaledImage = null;
+                isCircleRequested = false;
+
+                style = WORKER_STYLES.get();
+                style.set(circleStyle);
+            }
+
+            isScaled = isScaledRequested;
+            if (isScaled) {
+                scaledSize = this.scaledSize;
+                scaledShadowDp = this.scaledShadowDp;
+                scaledGeneration = this.scaledGeneration;
+                isScaledRequested = false;
+            }
+
+            isMip = isMipRequested;
+            if (isMip) {
+                mipSource = this.mipSource;
+                mipLevels = this.mipLevels;
+                this.mipSource = null;
+                isMipRequested = false;
+            }
+        }
+
+        RadialMetrics metrics = item.metrics;
+        long start = 0;
+        if (metrics != null) {
+            RadialMetrics.beginSection(RadialMetrics.TRACE_BITMAP);
+            start = System.nanoTime();
+        }
+
+        // a bitmap that fails (for example, if there is not enough memory to decode it) is skipped
+        // without holding on to anything, and the item keeps drawing its current one until it
+        // requests a different size
+        try {
+            if (isCircle) {
+                try {
+                    renderCircle(layout, circleSize, circleRadius, circleShadowDp, circleGeneration, previousScaledImage, style);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    onFailed(e);
+                }
+            }
+
+            if (isScaled) {
+                try {
+                    renderScaled(layout, scaledSize, scaledShadowDp, scaledGeneration);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    onFailed(e);
+                }
+            }
+
+            if (isMip) {
+                try {
+                    renderMips(layout, mipSource, mipLevels);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    onFailed(e);
+                }
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.onBitmapNanos(System.nanoTime() - start);
+                RadialMetrics.endSection();
+            }
+        }
+
+        return false;
+    }
+
+    private void renderCircle(RadialLayoutView layout, int size, float radius, float shadowRadiusDp, int generation, Bitmap previousScaledImage, CircleStyle style) {
+        Bitmap scaledImage;
+        try {
+            scaledImage = item.createScaledImage(radius, shadowRadiusDp);
+            if (scaledImage == null) {
+                scaledImage = previousScaledImage;
+                item.retain(scaledImage);
+            }
+        } finally {
+            item.release(previousScaledImage);
+        }
+
+        if (scaledImage == null)
+            return;
+
+        Bitmap circleImage;
+        try {
+            circleImage = item.createCircleImage(style, scaledImage, radius, shadowRadiusDp);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            item.release(scaledImage);
+            throw e;
+        }
+
+        synchronized (this) {
+            if (hasCircleResult) {
+                item.release(resultScaledImage);
+                item.release(resultCircleImage);
+            }
+
+            hasCircleResult = true;
+            resultScaledImage = scaledImage;
+            resultCircleImage = circleImage;
+            resultCircleSize = size;
+            resultCircleGeneration = generation;
+            postDelivery(layout);
+        }
+    }
+
+    private void renderScaled(RadialLayoutView layout, int size, float shadowSizeDp, int generation) {
+        Bitmap scaledImage = item.scaleImage(size, size);
+        synchronized (this) {
+            if (hasScaledResult)
+                item.release(resultScaled);
+
+            hasScaledResult = true;
+            resultScaled = scaledImage;
+            resultScaledShadowDp = shadowSizeDp;
+            resultScaledGeneration = generation;
+            postDelivery(layout);
+        }
+    }
+
+    private void renderMips(RadialLayoutView layout, Bitmap source, int levels) {
+        try {
+            Bitmap previous = source;
+            for (int level = 1; level < BaseRadialItem.MIP_LEVELS; level++) {
+                if (level <= levels) {
+                    workerMips[level] = ImageUtils.extractThumbnail(previous, Math.max(1, source.getWidth() >> level), Math.max(1, source.getHeight() >> level), item.getPool());
+                    item.onBitmapCreated(workerMips[level]);
+                    item.retain(workerMips[level]);
+                    previous = workerMips[level];
+                } else workerMips[level] = null;
+            }
+        } catch (RuntimeException | OutOfMemoryError e) {
+            for (int level = 1; level < BaseRadialItem.MIP_LEVELS; level++) {
+                item.release(workerMips[level]);
+                workerMips[level] = null;
+            }
+
+            throw e;
+        } finally {
+            item.release(source);
+        }
+
+        synchronized (this) {
+            for (int level = 1; level < BaseRadialItem.MIP_LEVELS; level++) {
+                if (hasMipResult)
+                    item.release(resultMips[level]);
+
+                resultMips[level] = workerMips[level];
+                workerMips[level] = null;
+            }
+
+            hasMipResult = true;
+            resultMipSource = source;
+            postDelivery(layout);
+        }
+    }
+
+    private void onFailed(Throwable e) {
+        Log.w("RadialLayout", "Could not create a bitmap for item " + item.getId(), e);
+    }
+
+    private void postDelivery(RadialLayoutView layout) {
+        if (!isDeliveryPosted) {
+            isDeliveryPosted = true;
+            layout.post(deliverRunnable);
+        }
+    }
+
+    /**
+     * Hands the latest results to the item on the main thread.
+     */
+    private void deliver() {
+        RadialLayoutView layout;
+        boolean hasCircle, hasScaled, hasMip;
+        Bitmap scaledImage, circleImage, scaled, mipSource;
+        int circleSize, circleGeneration, scaledGeneration;
+        float scaledShadowDp;
+
+        synchronized (this) {
+            isDeliveryPosted = false;
+            layout = this.layout;
+
+            hasCircle = hasCircleResult;
+            scaledImage = resultScaledImage;
+            circleImage = resultCircleImage;
+            circleSize = resultCircleSize;
+            circleGeneration = resultCircleGeneration;
+            hasCircleResult = false;
+            resultScaledImage = null;
+            resultCircleImage = null;
+
+            hasScaled = hasScaledResult;
+            scaled = resultScaled;
+            scaledShadowDp = resultScaledShadowDp;
+            scaledGeneration = resultScaledGeneration;
+            hasScaledResult = false;
+            resultScaled = null;
+
+            hasMip = hasMipResult;
+            mipSource = resultMipSource;
+            for (int level = 1; level < BaseRadialItem.MIP_LEVELS; level++) {
+                deliveredMips[level] = resultMips[level];
+                resultMips[level] = null;
+            }
+
+            hasMipResult = false;
+            resultMipSource = null;
+        }
+
+        if (hasCircle)
+            item.onCircleImageRendered(layout, scaledImage, circleImage, circleSize, circleGeneration);
+        if (hasScaled)
+            item.onScaledImageRendered(layout, scaled, scaledShadowDp, scaledGeneration);
+        if (hasMip)
+            item.onCircleMipsRendered(layout, mipSource, deliveredMips);
+
+        for (int level = 1; level < BaseRadialItem.MIP_LEVELS; level++)
+            deliveredMips[level] = null;
+
+        layout.onBitmapsDelivered();
+    }
+
+}
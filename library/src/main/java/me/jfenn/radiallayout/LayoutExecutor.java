@@ -0,0 +1,213 @@
+package me.jfenn.radiallayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the layout calculations of a view in the background, one at a time.
+ * While a layout is running, a newer request replaces any that is already
+ * waiting, and a result is only delivered if no newer request has been made
+ * since it started, so results can never be applied out of order. A layout
+ * that fails does not stop later ones from running; if it is the latest, its
+ * failure is thrown on the main thread instead of delivering a result.
+ */
+class LayoutExecutor {
+
+    private static ExecutorService executor;
+
+    private Handler handler;
+    private Task<?> running;
+    private Task<?> pending;
+    private Task<?> paused;
+    private int generation;
+
+    LayoutExecutor() {
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "RadialLayout-layout");
+
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Requests a layout, replacing any request that has not started yet.
+     *
+     * @param task the layout to run
+     */
+    synchronized void execute(@NonNull Task<?> task) {
+        task.generation = ++generation;
+        paused = null;
+        if (running == null)
+            start(task);
+        else {
+            if (pending != null)
+                pending.cancel();
+
+            pending = task;
+        }
+    }
+
+    private void start(final Task<?> task) {
+        running = task;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.runInBackground();
+                } finally {
+                    // the next request can only start once this one has finished, even if it failed
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            finish(task);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void finish(Task<?> task) {
+        boolean isLatest;
+        synchronized (this) {
+            if (running == task)
+                running = null;
+
+            isLatest = task.generation == generation && !task.isCancelled();
+            if (running == null && pending != null) {
+                Task<?> next = pending;
+                pending = null;
+                start(next);
+            }
+        }
+
+        if (isLatest)
+            task.deliver();
+    }
+
+    /**
+     * Cancels any layout that is running or waiting, without delivering its result.
+     */
+    synchronized void cancel() {
+        generation++;
+        if (running != null)
+            running.cancel();
+        if (pending != null)
+            pending.cancel();
+
+        pending = null;
+        paused = null;
+    }
+
+    /**
+     * Cancels any layout that is running or waiting, remembering the latest request
+     * so that it can be run again by resume().
+     */
+    synchronized void pause() {
+        Task<?> latest = pending != null ? pending : running;
+        cancel();
+        if (latest != null && latest.generation == generation - 1)
+            paused = latest;
+    }
+
+    /**
+     * Runs the latest request that was cancelled by pause(), if there is one.
+     */
+    synchronized void resume() {
+        if (paused != null) {
+            Task<?> task = paused.restart();
+            paused = null;
+            execute(task);
+        }
+    }
+
+    /**
+     * A layout calculation, which runs in the background and then delivers its
+     * result on the main thread.
+     *
+     * @param <T> the type of the result
+     */
+    abstract static class Task<T> {
+
+        private volatile boolean isCancelled;
+        private int generation;
+        private T result;
+        private Throwable failure;
+
+        /**
+         * Calculates the result. Long calculations should check isCancelled() to stop early.
+         *
+         * @return the result, or null if it was cancelled
+         */
+        @Nullable
+        abstract T run();
+
+        /**
+         * Applies the result on the main thread, if it is the latest one.
+         *
+         * @param result the result of run()
+         */
+        abstract void done(@Nullable T result);
+
+        /**
+         * @return a new task that performs the same calculation, to run it again after it has been cancelled
+         */
+        abstract Task<T> restart();
+
+        boolean isCancelled() {
+            return isCancelled;
+        }
+
+        private void cancel() {
+            isCancelled = true;
+        }
+
+        private void runInBackground() {
+            try {
+                if (!isCancelled)
+                    result = run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Applies the result on the main thread, or throws whatever the calculation
+         * failed with there, where it would have been thrown by a synchronous layout.
+         */
+        private void deliver() {
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            else if (failure instanceof Error)
+                throw (Error) failure;
+
+            done(result);
+        }
+    }
+
+}
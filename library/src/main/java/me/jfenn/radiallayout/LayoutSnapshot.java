@@ -0,0 +1,120 @@
+package me.jfenn.radiallayout;
+
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import me.jfenn.radiallayout.engine.RadialHitIndex;
+import me.jfenn.radiallayout.engine.RadialLayout;
+
+/**
+ * The items of a view together with the layout that positions them. A snapshot
+ * is built in full before it is published to the view, and is never changed
+ * afterwards: the view keeps drawing the current snapshot while the next one is
+ * being built, and items that have finished animating out are dropped by
+ * publishing a new snapshot without them, rather than by removing them from the
+ * one that is being drawn.
+ */
+final class LayoutSnapshot {
+
+    static final LayoutSnapshot EMPTY = new LayoutSnapshot(new BaseRadialItem[0], null);
+
+    /**
+     * the items in the order of the layout, followed by any items that are being removed
+     */
+    final BaseRadialItem[] items;
+    final List<BaseRadialItem> itemList;
+
+    @Nullable
+    final RadialLayout layout;
+    @Nullable
+    final RadialHitIndex hitIndex;
+
+    /**
+     * @param items  the items in the order of the layout, followed by any items that are being removed
+     * @param layout the layout of the items, or null if they have not been positioned
+     */
+    LayoutSnapshot(BaseRadialItem[] items, @Nullable RadialLayout layout) {
+        this(items, layout, layout != null ? new RadialHitIndex(layout) : null);
+    }
+
+    private LayoutSnapshot(BaseRadialItem[] items, @Nullable RadialLayout layout, @Nullable RadialHitIndex hitIndex) {
+        this.items = items;
+        this.layout = layout;
+        this.hitIndex = hitIndex;
+        itemList = Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /**
+     * @return the amount of items in the snapshot, including any that are being removed
+     */
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * @return the index of the outermost row that contains items
+     */
+    int getMaxRow() {
+        return layout != null ? layout.getMaxRow() : 0;
+    }
+
+    /**
+     * @param item the item to find
+     * @return the index of the item in the snapshot, or -1 if it is not in it
+     */
+    int indexOf(BaseRadialItem item) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == item)
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the item at a position using the hit index of the layout.
+     *
+     * @param x the x coordinate, relative to the center of the layout
+     * @param y the y coordinate, relative to the center of the layout
+     * @return the item at the position, or null if there is none
+     */
+    @Nullable
+    BaseRadialItem findItem(float x, float y) {
+        if (hitIndex == null)
+            return null;
+
+        int position = hitIndex.find(x, y);
+        return position >= 0 ? items[position] : null;
+    }
+
+    /**
+     * Creates a snapshot without the items that have finished animating out. These
+     * are always after the end of the layout, so the layout and its hit index can
+     * be shared with this snapshot.
+     *
+     * @return the new snapshot, or this one if no items have been removed
+     */
+    LayoutSnapshot withoutRemovedItems() {
+        int count = 0;
+        for (BaseRadialItem item : items) {
+            if (!item.isRemoved)
+                count++;
+        }
+
+        if (count == items.length)
+            return this;
+
+        BaseRadialItem[] remaining = new BaseRadialItem[count];
+        int i = 0;
+        for (BaseRadialItem item : items) {
+            if (!item.isRemoved)
+                remaining[i++] = item;
+        }
+
+        return new LayoutSnapshot(remaining, layout, hitIndex);
+    }
+
+}
@@ -0,0 +1,86 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+
+/**
+ * Provides the items of a RadialLayoutView on demand, for catalogs that are too
+ * large to hold every image in memory. The layout is calculated from the sizes
+ * and distances of all of the items, but images are only loaded for the rows
+ * that are visible or about to become visible, and are released again once
+ * their rows have scrolled far enough out of view.
+ */
+public abstract class RadialAdapter {
+
+    @Nullable
+    private RadialLayoutView view;
+
+    /**
+     * @return the amount of items in the adapter, which must be at least one
+     */
+    public abstract int getItemCount();
+
+    /**
+     * Returns the id of an item, which is used to match items to the current ones
+     * when the data set changes. Items with the same id are expected to have the
+     * same image, so an item that is still present keeps the bitmaps created from
+     * its current source. This is also called on a worker thread to find the
+     * current position of an item before its image is loaded.
+     *
+     * @param position the position of the item in the adapter
+     * @return the id of the item
+     */
+    public abstract String getItemId(int position);
+
+    /**
+     * @param position the position of the item in the adapter
+     * @return the size of the item, relative to other items in the view
+     */
+    public abstract int getItemSize(int position);
+
+    /**
+     * @param position the position of the item in the adapter
+     * @return the distance of the item from the center, relative to other items in the view
+     */
+    public abstract int getItemDistance(int position);
+
+    /**
+     * Returns a source that the image of an item can be decoded from at the size that it
+     * is displayed at. If this returns null, loadItemImage is called instead.
+     *
+     * @param position the position of the item in the adapter
+     * @return the source of the image of the item, or null to load it with loadItemImage
+     */
+    @Nullable
+    public ImageSource getItemImageSource(int position) {
+        return null;
+    }
+
+    /**
+     * Loads the image of an item once it is about to be displayed. This is called on a
+     * worker thread, so it can decode the image from disk or the network. The view drops
+     * its reference to the image once the item has scrolled out of view, but it may still
+     * be read on a worker thread for a short while after, so it should not be recycled.
+     *
+     * @param position the position of the item in the adapter
+     * @return the image of the item, or null if it could not be loaded
+     */
+    @Nullable
+    public Bitmap loadItemImage(int position) {
+        return null;
+    }
+
+    /**
+     * Calculates the layout of the view again after items have been added, removed,
+     * or changed. Items that are still present keep their images.
+     */
+    public void notifyDataSetChanged() {
+        if (view != null)
+            view.onAdapterChanged(this);
+    }
+
+    void setView(@Nullable RadialLayoutView view) {
+        this.view = view;
+    }
+
+}
@@ -2,7 +2,7 @@ package me.jfenn.radiallayout;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.media.ThumbnailUtils;
+import android.graphics.Paint;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawable;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawableFactory;
 
@@ -20,7 +20,11 @@ public class RadialItem extends BaseRadialItem {
         super(id, image, size, distance);
     }
 
-    private RadialItem(RadialItem item) {
+    public RadialItem(String id, ImageSource source, int size, int distance) {
+        super(id, source, size, distance);
+    }
+
+    RadialItem(RadialItem item) {
         super(item);
     }
 
@@ -30,38 +34,60 @@ public class RadialItem extends BaseRadialItem {
     }
 
     @Override
-    void setRadius(float radius, float shadowSizeDp) {
+    int getScaledImageSize(float radius, float shadowSizeDp) {
         int shadowSize = ConversionUtils.dpToPx(shadowSizeDp) * 2;
-        int size = (int) (radius * 2);
-        if (radius > shadowSize && size > 0 && (scaledImage == null || scaledImage.getWidth() != size || scaledImage.getHeight() != size)) {
-            //Log.d("RadialLayout", "new " + (scaledImage == null ? "scaled bitmap" : "radius"));
-            scaledImage = ThumbnailUtils.extractThumbnail(image, size, size);
-        }
-        this.radius = radius;
-        targetRadius = radius;
+        return radius > shadowSize ? (int) (radius * 2) : 0;
     }
 
     @Override
-    Bitmap getCircleImage(RadialLayoutView layout, float shadowRadiusDp) {
-        if (circleImage == null || circleImage.getWidth() != (int) (radius * 2) || circleImage.getHeight() != (int) (radius * 2)) {
-            if (scaledImage == null)
-                setRadius(radius, shadowRadiusDp);
-
-            int shadowRadius = ConversionUtils.dpToPx(shadowRadiusDp);
-
-            RoundedBitmapDrawable roundedBitmapDrawable = RoundedBitmapDrawableFactory.create(layout.getResources(), scaledImage);
-            roundedBitmapDrawable.setCornerRadius(radius);
-            roundedBitmapDrawable.setAntiAlias(true);
-
-            Bitmap roundedBitmap = ImageUtils.drawableToBitmap(roundedBitmapDrawable);
-            if (shadowRadius > 0) {
-                circleImage = Bitmap.createBitmap(roundedBitmap.getWidth() + (shadowRadius * 2), roundedBitmap.getHeight() + (shadowRadius * 2), Bitmap.Config.ARGB_4444);
-                Canvas canvas = new Canvas(circleImage);
-                canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - shadowRadius - 1, layout.getShadowPaint());
-                canvas.drawBitmap(roundedBitmap, shadowRadius, shadowRadius, layout.getPaint());
-            } else circleImage = roundedBitmap;
+    Bitmap createCircleImage(CircleStyle style, Bitmap scaledImage, float radius, float shadowRadiusDp) {
+        int size = (int) (radius * 2);
+        int shadowRadius = ConversionUtils.dpToPx(shadowRadiusDp);
+
+        BitmapCache.Key key = null;
+        if (cache != null) {
+            key = new BitmapCache.Key(getImageKey(), BitmapCache.TYPE_CIRCLE, size, scaledImage.getWidth(), shadowRadius,
+                    style.shadowRadius, style.shadowOffset, style.shadowColor);
+
+            Bitmap bitmap = cache.acquire(key);
+            if (bitmap != null)
+                return bitmap;
         }
 
+        RoundedBitmapDrawable roundedBitmapDrawable = RoundedBitmapDrawableFactory.create(style.resources, scaledImage);
+        roundedBitmapDrawable.setCornerRadius(radius);
+        roundedBitmapDrawable.setAntiAlias(true);
+
+        BitmapPool pool = getPool();
+        Bitmap circleImage;
+        Bitmap roundedBitmap = ImageUtils.drawableToBitmap(roundedBitmapDrawable, pool);
+        if (shadowRadius > 0) {
+            circleImage = ImageUtils.createBitmap(pool, roundedBitmap.getWidth() + (shadowRadius * 2), roundedBitmap.getHeight() + (shadowRadius * 2), Bitmap.Config.ARGB_4444);
+            Canvas canvas = new Canvas(circleImage);
+            canvas.drawCircle(canvas.getWidth() / 2, canvas.getHeight() / 2, (canvas.getWidth() / 2) - shadowRadius - 1, style.shadowPaint);
+            canvas.drawBitmap(roundedBitmap, shadowRadius, shadowRadius, style.paint);
+
+            // the rounded bitmap has only been drawn into the circle image, so nothing else holds it
+            if (pool != null)
+                pool.put(roundedBitmap);
+        } else circleImage = roundedBitmap;
+
+        onBitmapCreated(circleImage);
+        retain(circleImage);
+        if (key != null)
+            cache.put(key, circleImage);
+
         return circleImage;
     }
+
+    @Override
+    void drawShadedImage(Canvas canvas, RadialLayoutView layout, Paint paint, float shadowRadiusDp) {
+        int shadowRadius = ConversionUtils.dpToPx(shadowRadiusDp);
+        float center = radius + shadowRadius;
+        if (shadowRadius > 0)
+            layout.drawShadow(canvas, center, center, radius - 1);
+
+        if (setShader(paint, shadowRadius, shadowRadius, radius * 2))
+            canvas.drawCircle(center, center, radius, paint);
+    }
 }
@@ -1,26 +1,44 @@
 package me.jfenn.radiallayout;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.AttrRes;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
-import com.afollestad.async.Action;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.jfenn.radiallayout.engine.RadialAnimationStore;
+import me.jfenn.radiallayout.engine.RadialClock;
+import me.jfenn.radiallayout.engine.RadialLayout;
+import me.jfenn.radiallayout.engine.RadialLayoutEngine;
+import me.jfenn.radiallayout.engine.RadialMath;
+import me.jfenn.radiallayout.engine.RadialScroller;
+import me.jfenn.radiallayout.engine.TargetScales;
 import me.jfenn.radiallayout.utils.ConversionUtils;
 import me.jfenn.radiallayout.utils.RadialUtils;
 
@@ -29,69 +47,218 @@ public class RadialLayoutView extends View {
     public static final float CLICK_DOWN_SCALE = 0.8f;
     public static final float CLICK_UP_SCALE = 1.07f;
 
+    /**
+     * Draws each item from a circular bitmap that is created with its shadow ahead of time.
+     */
+    public static final int RENDER_MODE_BITMAP = 0;
+
+    /**
+     * Draws each item straight from its scaled image through a circular shader, without
+     * creating a circular bitmap. This uses less memory and does not need to create any
+     * bitmaps when items are resized, but draws more on every frame.
+     */
+    public static final int RENDER_MODE_SHADER = 1;
+
     private Paint paint;
     private Paint shadowPaint;
-    List<BaseRadialItem> items;
+    private Paint placeholderPaint;
+    private Paint shaderPaint;
+    private ShadowSprites shadowSprites;
+    private CircleAtlas atlas;
+    private AdapterBinder adapterBinder;
+
+    /**
+     * the amount of pixel memory (bytes) that the bitmaps of items should be kept under, or 0 for no limit
+     */
+    private long memoryBudget;
+
+    /**
+     * true if the memory budget will be checked once the current frame has been drawn
+     */
+    private boolean isTrimScheduled;
+
+    /**
+     * true if the bitmaps that are queued in the atlas will be packed once the current frame has been drawn
+     */
+    private boolean isPackingScheduled;
+
+    private Runnable packRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isPackingScheduled = false;
+            if (atlas == null)
+                return;
+
+            if (atlas.packQueued() > 0)
+                requestFrame();
+
+            if (atlas.hasQueued())
+                schedulePacking();
+        }
+    };
+
+    private Runnable trimRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isTrimScheduled = false;
+            trimToBudget();
+        }
+    };
+
+    /**
+     * the rows that were visible in the last frame, whose bitmaps are kept when memory is released
+     */
+    private int visibleFirstRow;
+    private int visibleEndRow = Integer.MAX_VALUE;
+
+    /**
+     * true if any of the items outside of the visible rows might still be animating
+     */
+    private boolean isCulledAnimating = true;
+
+    /**
+     * sorts the items that hold bitmaps so that the ones furthest from the visible rows are released first
+     */
+    private static final Comparator<BaseRadialItem> TRIM_ORDER = new Comparator<BaseRadialItem>() {
+        @Override
+        public int compare(BaseRadialItem o1, BaseRadialItem o2) {
+            return o2.trimDistance - o1.trimDistance;
+        }
+    };
+
+    /**
+     * reused by trimToBudget to sort the items that can be released, so that it does not allocate while scrolling
+     */
+    private BaseRadialItem[] trimItems = new BaseRadialItem[0];
+
+    private ComponentCallbacks2 trimCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            RadialLayoutView.this.onTrimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration configuration) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            RadialLayoutView.this.onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+    private LayoutExecutor layoutExecutor = new LayoutExecutor();
+    private int renderMode = RENDER_MODE_BITMAP;
+
+    /**
+     * the items that are displayed and their layout, which is only ever replaced as a whole
+     */
+    private volatile LayoutSnapshot snapshot = LayoutSnapshot.EMPTY;
     private boolean isReady;
 
-    private boolean isScrolling;
+    /**
+     * moves the offset of the layout, which is copied into offsetX and offsetY when a frame is drawn
+     */
+    private RadialScroller scroller;
     private float offsetX, offsetY;
-    private float velocityX, velocityY;
-    private float fingerX, fingerY;
-    private float lastX, lastY;
-    private int maxRow;
 
     private float downX, downY;
-    private boolean isDown, isFingerDown, isIgnorant, isDragged;
+    private boolean isDragged;
     private Handler handler = new Handler();
-    private Runnable upRunnable = new Runnable() {
+
+    private RadialClock clock;
+    private Choreographer choreographer;
+    private boolean isFrameScheduled;
+
+    /**
+     * the amount of (60 Hz) frames that have passed since the last call to onDraw
+     */
+    private float pendingFrames;
+
+    private Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
         @Override
-        public void run() {
-            isDown = false;
-            isIgnorant = false;
-            velocityX = 0;
-            velocityY = 0;
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            float frames = clock.tick(frameTimeNanos);
+            scroller.setBound(getScrollDistance(getWidth(), getHeight()) / 2f);
+            if (scroller.step(frameTimeNanos))
+                isDirty = true;
+
+            if (!isDirty && !isAnimating()) {
+                // nothing has changed since the last frame, so there is no need to draw another one
+                framesSkipped++;
+                if (metrics != null)
+                    metrics.framesSkipped++;
+
+                clock.reset();
+                scheduleReturn();
+                return;
+            }
 
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    if (!isDown) {
-                        if (Math.abs(offsetX) > 0.01 || Math.abs(offsetY) > 0.01) {
-                            offsetX /= 1.1;
-                            offsetY /= 1.1;
-                            lastX /= 1.1;
-                            lastY /= 1.1;
-                            handler.postDelayed(this, 10);
-                        } else {
-                            lastX = 0;
-                            lastY = 0;
-                            offsetX = 0;
-                            offsetY = 0;
-                            fingerX = 0;
-                            fingerY = 0;
-                        }
-                    }
-                }
-            });
+            isDirty = false;
+            pendingFrames += frames;
+            invalidate();
+        }
+    };
+
+    private Runnable requestFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestFrame();
         }
     };
 
+    private RadialAnimationStore animationStore;
+    private BaseRadialItem pressedItem;
+
     private CenteredRadialItem centerItem;
-    private List<Float> targetCurrentUserScales;
+    private TargetScales targetCurrentUserScales;
+
+    /**
+     * reused for every item that is drawn to avoid allocating during a frame
+     */
+    private Matrix drawMatrix;
+    private float[] drawPoint;
 
     private float itemRadius = 36;
+    private float itemRadiusVariation = 6;
     private float itemSeparation = 8;
     private float shadowRadius = 0;
     private float shadowOffset = 0;
     private int shadowColor = Color.argb(100, 0, 0, 0);
 
     /**
-     * true once the view has been drawn - will invalidate continuously until then as an alternative to a ViewTreeObserver
+     * the display density (pixels per dp) of the current layout, and its shadow in
+     * pixels, which are converted once per layout rather than on every frame
+     */
+    private float density;
+    private int shadowRadiusPx;
+    private int shadowOffsetPx;
+    private int shadowSizePx;
+
+    private BitmapCache bitmapCache = BitmapCache.getDefault();
+
+    /**
+     * true if something has changed that needs to be drawn in the next frame
      */
-    private boolean isFirstDrawn;
+    private boolean isDirty;
+
+    /**
+     * true if any of the items that were drawn in the last frame are still animating
+     */
+    private boolean isItemAnimating;
+
+    private long framesRendered;
+    private long framesSkipped;
 
     private OnCenterClickListener centerListener;
     private OnItemClickListener listener;
+    private OnItemsDiffListener diffListener;
+
+    /**
+     * the metrics that are reported to the metrics listener, or null if there is no listener
+     */
+    private RadialMetrics metrics;
+    private OnMetricsListener metricsListener;
 
     public RadialLayoutView(@NonNull Context context) {
         this(context, null);
@@ -103,7 +270,7 @@ public class RadialLayoutView extends View {
 
     public RadialLayoutView(@NonNull Context context, @Nullable AttributeSet attrs, @AttrRes int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        items = new ArrayList<>();
+        density = ConversionUtils.getDensity();
         paint = new Paint();
         paint.setAntiAlias(true);
         paint.setFilterBitmap(true);
@@ -113,13 +280,69 @@ public class RadialLayoutView extends View {
         shadowPaint.setAntiAlias(false);
         shadowPaint.setFilterBitmap(false);
         shadowPaint.setDither(false);
-        setLayerType(LAYER_TYPE_SOFTWARE, shadowPaint);
-        shadowPaint.setShadowLayer(ConversionUtils.dpToPx(shadowRadius), 0, ConversionUtils.dpToPx(shadowOffset), shadowColor);
+        shadowPaint.setShadowLayer(shadowRadiusPx, 0, shadowOffsetPx, shadowColor);
+
+        placeholderPaint = new Paint();
+        placeholderPaint.setAntiAlias(true);
+        placeholderPaint.setColor(Color.argb(30, 0, 0, 0));
+
+        shaderPaint = new Paint();
+        shaderPaint.setAntiAlias(true);
+        shaderPaint.setFilterBitmap(true);
+        shaderPaint.setDither(true);
+
+        // shadows are drawn from pre-rendered sprites, as shadow layers would need a software layer
+        shadowSprites = new ShadowSprites(32);
 
         setFocusable(true);
         setClickable(true);
 
-        targetCurrentUserScales = new ArrayList<>();
+        targetCurrentUserScales = new TargetScales();
+        drawMatrix = new Matrix();
+        drawPoint = new float[2];
+
+        clock = new RadialClock();
+        choreographer = Choreographer.getInstance();
+        scroller = new RadialScroller(density);
+    }
+
+    /**
+     * Marks the view as changed and requests a frame to draw it in. This can be
+     * called from any thread.
+     */
+    void requestFrame() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            post(requestFrameRunnable);
+            return;
+        }
+
+        isDirty = true;
+        scheduleFrame();
+    }
+
+    /**
+     * Requests another animation frame, which will be drawn at the next vsync
+     * and advanced by the time that has passed since the previous one. The frame
+     * is skipped if nothing is animating or has been changed by then.
+     */
+    private void scheduleFrame() {
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Requests a frame for when the layout starts returning to the center, if it has been
+     * let go away from it. Frames are not drawn while the layout waits to return, so this
+     * is called once there is nothing else to draw.
+     */
+    private void scheduleReturn() {
+        long returnNanos = scroller.getReturnNanos();
+        if (returnNanos >= 0) {
+            handler.removeCallbacks(requestFrameRunnable);
+            handler.postDelayed(requestFrameRunnable, TimeUnit.NANOSECONDS.toMillis(returnNanos - System.nanoTime()) + 1);
+        }
     }
 
     /**
@@ -136,6 +359,54 @@ public class RadialLayoutView extends View {
         return shadowPaint;
     }
 
+    /**
+     * Draws the shadow of a circle from a pre-rendered sprite, so that the view
+     * can be drawn with hardware acceleration.
+     *
+     * @param canvas  the canvas to draw to
+     * @param centerX the x coordinate of the center of the circle
+     * @param centerY the y coordinate of the center of the circle
+     * @param radius  the radius of the circle
+     */
+    void drawShadow(Canvas canvas, float centerX, float centerY, float radius) {
+        shadowSprites.draw(canvas, centerX, centerY, radius, shadowRadiusPx, shadowOffsetPx, shadowColor, shadowPaint);
+    }
+
+    float getShadowRadius() {
+        return shadowRadius;
+    }
+
+    float getShadowOffset() {
+        return shadowOffset;
+    }
+
+    int getShadowColor() {
+        return shadowColor;
+    }
+
+    /**
+     * Sets the cache that items use to share scaled and circular bitmaps. By default, a
+     * cache shared by every view is used.
+     *
+     * @param cache the cache to use, or null to not cache any bitmaps
+     */
+    public void setBitmapCache(@Nullable BitmapCache cache) {
+        bitmapCache = cache;
+        if (centerItem != null)
+            centerItem.cache = cache;
+
+        for (BaseRadialItem item : snapshot.items)
+            item.cache = cache;
+    }
+
+    /**
+     * @return the cache that items use to share scaled and circular bitmaps
+     */
+    @Nullable
+    public BitmapCache getBitmapCache() {
+        return bitmapCache;
+    }
+
     /**
      * Sets the color of the shadow of all items in the view
      *
@@ -143,29 +414,186 @@ public class RadialLayoutView extends View {
      */
     public void setShadowColor(@ColorInt int shadowColor) {
         this.shadowColor = shadowColor;
-        shadowPaint.setShadowLayer(ConversionUtils.dpToPx(shadowRadius), 0, ConversionUtils.dpToPx(shadowOffset), shadowColor);
+        shadowPaint.setShadowLayer(shadowRadiusPx, 0, shadowOffsetPx, shadowColor);
+        shadowSprites.clear();
 
         if (centerItem != null)
-            centerItem.circleImage = null;
+            centerItem.invalidateCircleImage();
 
-        for (BaseRadialItem item : items) {
-            item.circleImage = null;
+        for (BaseRadialItem item : snapshot.items) {
+            item.invalidateCircleImage();
         }
 
         postInvalidate();
     }
 
+    /**
+     * Sets how the items are drawn, either RENDER_MODE_BITMAP (the default) or RENDER_MODE_SHADER.
+     *
+     * @param renderMode the mode to draw items in
+     */
+    public void setRenderMode(int renderMode) {
+        if (renderMode != RENDER_MODE_BITMAP && renderMode != RENDER_MODE_SHADER)
+            throw new IllegalArgumentException("Unknown render mode: " + renderMode);
+
+        if (this.renderMode == renderMode)
+            return;
+
+        this.renderMode = renderMode;
+        if (renderMode == RENDER_MODE_SHADER) {
+            if (atlas != null)
+                atlas.clear();
+
+            // circular bitmaps are not drawn in this mode, so there is no need to hold them
+            if (centerItem != null) {
+                centerItem.invalidateCircleImage();
+                centerItem.replaceCircleImage(null);
+            }
+
+            for (BaseRadialItem item : snapshot.items) {
+                item.invalidateCircleImage();
+                item.replaceCircleImage(null);
+            }
+        }
+
+        postInvalidate();
+    }
+
+    /**
+     * @return the mode that the items are drawn in, either RENDER_MODE_BITMAP or RENDER_MODE_SHADER
+     */
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Sets whether the circular bitmaps of items should be packed into a few shared
+     * pages, so that drawing does not switch between a different bitmap for every
+     * item. This only applies to RENDER_MODE_BITMAP. Items keep their own bitmaps
+     * once they are packed, so the pages (4 MB each) are held in addition to them.
+     *
+     * @param enabled whether to pack items into an atlas
+     */
+    public void setAtlasEnabled(boolean enabled) {
+        if (enabled == (atlas != null))
+            return;
+
+        if (enabled)
+            atlas = new CircleAtlas();
+        else {
+            atlas.clear();
+            atlas = null;
+        }
+
+        postInvalidate();
+    }
+
+    /**
+     * @return whether the circular bitmaps of items are packed into an atlas
+     */
+    public boolean isAtlasEnabled() {
+        return atlas != null;
+    }
+
+    /**
+     * @return the atlas that items are packed into, which can be used to measure how well they fit, or null if it is not enabled
+     */
+    @Nullable
+    public CircleAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Sets the color of the circle that is drawn in place of an item while its image
+     * is being created in the background.
+     *
+     * @param placeholderColor a color int
+     */
+    public void setPlaceholderColor(@ColorInt int placeholderColor) {
+        placeholderPaint.setColor(placeholderColor);
+        postInvalidate();
+    }
+
+    /**
+     * Sets whether the animated state of the items should be held in a single
+     * store of primitive arrays, which steps every item in one loop instead of
+     * calling each item individually. This is faster for large amounts of items.
+     *
+     * @param enabled whether to use an animation store
+     */
+    public void setAnimationStoreEnabled(boolean enabled) {
+        if (enabled == (animationStore != null))
+            return;
+
+        if (enabled) {
+            animationStore = new RadialAnimationStore(snapshot.size());
+            bindAnimationStore();
+        } else {
+            syncAnimationStore();
+            animationStore.clear();
+            animationStore = null;
+        }
+
+        postInvalidate();
+    }
+
+    /**
+     * @return whether the animated state of the items is held in a single store
+     */
+    public boolean isAnimationStoreEnabled() {
+        return animationStore != null;
+    }
+
+    /**
+     * Adds all of the current items to the animation store, replacing its previous contents.
+     */
+    private void bindAnimationStore() {
+        if (animationStore != null) {
+            animationStore.clear();
+            for (BaseRadialItem item : snapshot.items)
+                item.bind(animationStore);
+        }
+    }
+
+    /**
+     * Copies the animated state of every item back from the animation store.
+     */
+    private void syncAnimationStore() {
+        if (animationStore != null) {
+            for (BaseRadialItem item : snapshot.items)
+                item.syncFromStore();
+        }
+    }
+
+    /**
+     * Removes any items that the animation store has finished removing.
+     */
+    private void removeStoredItems() {
+        syncAnimationStore();
+        for (BaseRadialItem item : snapshot.items) {
+            if (item.isBound() && animationStore.isRemoved(item.storeSlot))
+                item.remove();
+        }
+
+        snapshot = snapshot.withoutRemovedItems();
+        bindAnimationStore();
+    }
+
     /**
      * Set the item to be displayed in the center of the view.
      *
      * @param item the item to be displayed in the center of the view
      */
     public void setCenterItem(@Nullable CenteredRadialItem item) {
+        if (centerItem != null && centerItem != item)
+            centerItem.releaseImages();
+
         centerItem = item;
+        centerItem.cache = bitmapCache;
+        centerItem.metrics = metrics;
         centerItem.scale = 0;
         centerItem.setRadius(ConversionUtils.dpToPx(centerItem.size) / 2, shadowRadius + shadowOffset);
         clickCenterUp();
-        postInvalidate();
     }
 
     /**
@@ -182,24 +610,34 @@ public class RadialLayoutView extends View {
         this.listener = listener;
     }
 
+    /**
+     * Listen for the changes made to the items each time that updateItems is applied.
+     */
+    public void setOnItemsDiffListener(@Nullable OnItemsDiffListener listener) {
+        diffListener = listener;
+    }
+
     /**
      * Get all the items being displayed in the view.
      *
      * @return a list of the items being displayed in the view
      */
     public List<BaseRadialItem> getItems() {
-        return new ArrayList<>(items);
+        syncAnimationStore();
+        return new ArrayList<>(snapshot.itemList);
     }
 
     /**
      * This method returns a builder to help set up the necessary parameters
-     * for calculating item positions.
+     * for calculating item positions. Items that are not displayed yet are used
+     * as they are, so they should not be passed to another builder until this
+     * one has been applied.
      *
      * @param items the new list of items to display
      * @return a builder to help set up the necessary parameters for calculating item positions
      */
     public Builder setItems(List<BaseRadialItem> items) {
-        this.items = items;
+        setAdapterBinder(null);
         if (items.size() < 1) {
             isReady = true;
             throw new EmptyListException("The list of RadialItems must have at least one item in it.");
@@ -210,9 +648,88 @@ public class RadialLayoutView extends View {
         return new Builder(this, items, true);
     }
 
+    /**
+     * Displays the items of an adapter, which only loads the images of the items that
+     * are visible or about to become visible. This replaces any items or adapter that
+     * were set before, and returns a builder in the same way as setItems.
+     *
+     * @param adapter the adapter to display the items of
+     * @return a builder to help set up the necessary parameters for calculating item positions
+     */
+    public Builder setAdapter(RadialAdapter adapter) {
+        Builder builder = setItems(createItems(adapter));
+        setAdapterBinder(new AdapterBinder(adapter));
+        return builder;
+    }
+
+    /**
+     * @return the adapter that the items are displayed from, or null if they were set directly
+     */
+    @Nullable
+    public RadialAdapter getAdapter() {
+        return adapterBinder != null ? adapterBinder.getAdapter() : null;
+    }
+
+    private void setAdapterBinder(@Nullable AdapterBinder binder) {
+        if (adapterBinder != null)
+            adapterBinder.getAdapter().setView(null);
+
+        adapterBinder = binder;
+        if (binder != null)
+            binder.getAdapter().setView(this);
+    }
+
+    /**
+     * Calculates the layout again after the data set of the current adapter has changed,
+     * with the same parameters as the previous layout.
+     *
+     * @param adapter the adapter that has changed
+     */
+    void onAdapterChanged(RadialAdapter adapter) {
+        if (adapterBinder == null || adapterBinder.getAdapter() != adapter)
+            return;
+
+        List<BaseRadialItem> items = createItems(adapter);
+        if (isReady) {
+            // items that are still in the adapter keep their radius and source, so that they are not resized and their rows can be reused
+            Map<String, BaseRadialItem> currentItems = new HashMap<>();
+            for (BaseRadialItem item : snapshot.items) {
+                if (!item.isRemoving && !currentItems.containsKey(item.id))
+                    currentItems.put(item.id, item);
+            }
+
+            for (BaseRadialItem item : items) {
+                BaseRadialItem current = currentItems.get(item.id);
+                if (current != null) {
+                    item.radius = current.targetRadius;
+
+                    // a new source for the same id has the same image, so the current one keeps its bitmaps and cache keys
+                    if (item.source != null && current.source != null)
+                        item.source = current.source;
+                }
+            }
+
+            updateItems(items).apply();
+        } else new Builder(this, items, true).apply();
+    }
+
+    /**
+     * Creates an item for every position of an adapter, without any images.
+     */
+    private static List<BaseRadialItem> createItems(RadialAdapter adapter) {
+        int count = adapter.getItemCount();
+        List<BaseRadialItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            items.add(new AdapterItem(adapter, i));
+
+        return items;
+    }
+
     /**
      * This method returns a builder to help set up the necessary parameters for calculating
-     * new item positions.
+     * new item positions. Items that are already displayed keep being displayed (and passed
+     * to listeners) as the same objects, while new items are used as they are, in the same
+     * way as for setItems.
      *
      * @param items the modified list of items to display
      * @return a builder to help set up the necessary parameters for calculating item positions
@@ -226,156 +743,583 @@ public class RadialLayoutView extends View {
         return new Builder(this, items, false);
     }
 
+    /**
+     * @return whether anything in the view will change in the next frame
+     */
+    private boolean isAnimating() {
+        return scroller.isMoving() || isItemAnimating
+                || (centerItem != null && targetCurrentUserScales.needsFrame(centerItem.scale));
+    }
+
+    /**
+     * Listen for the timings and counts of the work done by the view after every frame
+     * that it draws. While there is a listener, each phase is also marked as a section
+     * in system traces (on API 18 and above). Nothing is measured when there is no listener.
+     *
+     * @param listener the listener to report to, or null to stop collecting metrics
+     */
+    public void setOnMetricsListener(@Nullable OnMetricsListener listener) {
+        metricsListener = listener;
+        if (listener == null)
+            metrics = null;
+        else if (metrics == null)
+            metrics = new RadialMetrics();
+
+        if (centerItem != null)
+            centerItem.metrics = metrics;
+
+        for (BaseRadialItem item : snapshot.items)
+            item.metrics = metrics;
+    }
+
+    /**
+     * @return the amount of frames that have been drawn by the view
+     */
+    public long getFramesRendered() {
+        return framesRendered;
+    }
+
+    /**
+     * @return the amount of frames that were requested but not drawn because nothing had changed
+     */
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    /**
+     * Sets the amount of pixel memory that the bitmaps of the view should be kept under.
+     * Whenever it is exceeded, bitmaps in the cache and pool that no item holds are
+     * released first, and then the bitmaps of the items that are furthest from the
+     * visible rows, which are created again once they are drawn. Items in the visible
+     * rows are never released, so the budget can be exceeded if it is too small to fit them.
+     *
+     * @param bytes the budget in bytes, or 0 for no limit
+     */
+    public void setMemoryBudget(long bytes) {
+        memoryBudget = Math.max(bytes, 0);
+        trimToBudget();
+    }
+
+    /**
+     * @return the amount of pixel memory (bytes) that the bitmaps of the view are kept under, or 0 if there is no limit
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Counts the pixel memory of the bitmaps that have been created for the items, along with
+     * the bitmaps held by the cache and pool of the view, the atlas, and the shadow sprites.
+     * The images that items were created with are not counted. If the view reuses bitmaps
+     * through a pool, this is the amount that the pool keeps track of as bitmaps are retained
+     * and released, which also includes the bitmaps of any other views that share it.
+     * Otherwise, every item is visited, and bitmaps that are shared between items are
+     * counted once for each of them.
+     *
+     * @return the amount of bytes held by the view
+     */
+    public long getHeldByteCount() {
+        BitmapCache cache = bitmapCache;
+        BitmapPool pool = cache != null ? cache.getPool() : null;
+        long bytes;
+        if (pool != null) {
+            // the cache and every item retain their bitmaps in the pool, so they are already counted
+            bytes = pool.getHeldSize() + pool.getSize();
+        } else {
+            bytes = centerItem != null ? centerItem.getHeldByteCount() : 0;
+            for (BaseRadialItem item : snapshot.items)
+                bytes += item.getHeldByteCount();
+
+            if (cache != null)
+                bytes += cache.getSize();
+        }
+
+        if (atlas != null)
+            bytes += atlas.getByteCount();
+
+        return bytes + shadowSprites.getByteCount();
+    }
+
+    /**
+     * Releases bitmaps in response to a level from ComponentCallbacks2.onTrimMemory. This is
+     * called automatically while the view is attached to a window. While the app is running,
+     * the bitmaps of items outside of the visible rows are released, along with any bitmaps
+     * in the cache and pool that no item holds, and once its UI is hidden, every bitmap is
+     * released. Released bitmaps are created again once they are drawn.
+     *
+     * @param level the memory trim level
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            if (centerItem != null)
+                centerItem.releaseImages();
+
+            for (BaseRadialItem item : snapshot.items)
+                item.releaseImages();
+
+            if (atlas != null)
+                atlas.clear();
+
+            shadowSprites.clear();
+            if (bitmapCache != null) {
+                bitmapCache.clear();
+                if (bitmapCache.getPool() != null)
+                    bitmapCache.getPool().clear();
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            for (BaseRadialItem item : snapshot.items) {
+                if (!isVisibleRow(item.row))
+                    item.releaseImages();
+            }
+
+            if (bitmapCache != null) {
+                // the released bitmaps are still held by the cache, or have been returned to the pool
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+                    bitmapCache.clear();
+                else bitmapCache.evictUnused(Long.MAX_VALUE);
+
+                if (bitmapCache.getPool() != null)
+                    bitmapCache.getPool().clear();
+            }
+        }
+
+        requestFrame();
+    }
+
+    private boolean isVisibleRow(int row) {
+        return row >= visibleFirstRow && row < visibleEndRow;
+    }
+
+    /**
+     * Called on the main thread once bitmaps that were created in the background have
+     * been given to an item, so that the budget is checked again.
+     */
+    void onBitmapsDelivered() {
+        scheduleTrim();
+    }
+
+    /**
+     * Packs the bitmaps that have been queued in the atlas once the current frame has been
+     * drawn, so that its pages are redrawn in batches instead of while drawing items.
+     */
+    private void schedulePacking() {
+        if (!isPackingScheduled) {
+            isPackingScheduled = true;
+            handler.post(packRunnable);
+        }
+    }
+
+    /**
+     * Checks the memory budget once the main thread is idle, rather than during a frame,
+     * so that releasing bitmaps never adds to the time taken to draw one.
+     */
+    private void scheduleTrim() {
+        if (memoryBudget > 0 && !isTrimScheduled) {
+            isTrimScheduled = true;
+            handler.post(trimRunnable);
+        }
+    }
+
+    /**
+     * Releases the bitmaps that no item holds, and then the bitmaps of the items that are
+     * furthest from the visible rows, until the held bitmaps fit in the memory budget, if
+     * there is one.
+     */
+    private void trimToBudget() {
+        if (memoryBudget <= 0)
+            return;
+
+        long bytes = trimUnusedBitmaps(getHeldByteCount());
+        if (bytes <= memoryBudget)
+            return;
+
+        BaseRadialItem[] items = snapshot.items;
+        if (trimItems.length < items.length)
+            trimItems = new BaseRadialItem[items.length];
+
+        int count = 0;
+        for (BaseRadialItem item : items) {
+            if (!isVisibleRow(item.row) && item.getHeldByteCount() > 0) {
+                item.trimDistance = getRowDistance(item.row);
+                trimItems[count++] = item;
+            }
+        }
+
+        Arrays.sort(trimItems, 0, count, TRIM_ORDER);
+        boolean isReleased = false;
+        for (int i = 0; i < count; i++) {
+            BaseRadialItem item = trimItems[i];
+            trimItems[i] = null;
+            if (bytes > memoryBudget) {
+                bytes -= item.getHeldByteCount();
+                item.releaseImages();
+                isReleased = true;
+            }
+        }
+
+        // the bitmaps of the released items are still held by the cache, or have been returned to the pool
+        if (isReleased)
+            trimUnusedBitmaps(getHeldByteCount());
+    }
+
+    /**
+     * Removes the bitmaps in the cache that no item holds, and then the unused bitmaps in
+     * the pool, until the held bitmaps fit in the memory budget.
+     *
+     * @param bytes the amount of bytes currently held by the view
+     * @return the amount of bytes held by the view afterwards
+     */
+    private long trimUnusedBitmaps(long bytes) {
+        BitmapCache cache = bitmapCache;
+        if (cache == null || bytes <= memoryBudget)
+            return bytes;
+
+        // bitmaps that are evicted from the cache are returned to the pool, so the pool is trimmed afterwards
+        cache.evictUnused(bytes - memoryBudget);
+        BitmapPool pool = cache.getPool();
+        if (pool != null) {
+            bytes = getHeldByteCount();
+            if (bytes > memoryBudget)
+                pool.trimToSize((int) Math.max(0, pool.getSize() - (bytes - memoryBudget)));
+        }
+
+        return getHeldByteCount();
+    }
+
+    /**
+     * @return the amount of rows between a row and the closest visible row
+     */
+    private int getRowDistance(int row) {
+        if (row < visibleFirstRow)
+            return visibleFirstRow - row;
+        else return Math.max(0, row - visibleEndRow + 1);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(trimCallbacks);
+        layoutExecutor.resume();
+        requestFrame();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getContext().getApplicationContext().unregisterComponentCallbacks(trimCallbacks);
+        layoutExecutor.pause();
+        choreographer.removeFrameCallback(frameCallback);
+        isFrameScheduled = false;
+        clock.reset();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
-        if (isScrolling) {
-            float newVelocityX = ((fingerX - offsetX) + (velocityX * 18)) / 21;
-            float newVelocityY = ((fingerY - offsetY) + (velocityY * 18)) / 21;
-            if (((int) newVelocityX != (int) velocityX || (int) newVelocityY != (int) velocityY)) {
-                if (isFingerDown) {
-                    velocityX = fingerX - offsetX;
-                    velocityY = fingerY - offsetY;
-                } else {
-                    velocityX = newVelocityX;
-                    velocityY = newVelocityY;
-                }
+        RadialMetrics metrics = this.metrics;
+        long phaseStart = 0;
+        if (metrics != null) {
+            RadialMetrics.beginSection(RadialMetrics.TRACE_ANIMATE);
+            phaseStart = System.nanoTime();
+        }
 
-                int distance = (RadialUtils.getRadius(maxRow + 1, itemRadius, itemSeparation) * 2) - Math.min(canvas.getWidth(), canvas.getHeight());
-                float boundedX = Math.max(-distance / 2, Math.min(distance / 2, offsetX));
-                float boundedY = Math.max(-distance / 2, Math.min(distance / 2, offsetY));
+        framesRendered++;
+        float frames = pendingFrames;
+        pendingFrames = 0;
+        float remaining = RadialClock.getRatio(RadialMath.EASING, frames);
 
-                offsetX = (((offsetX + velocityX) * 3) + boundedX) / 4;
-                offsetY = (((offsetY + velocityY) * 3) + boundedY) / 4;
-                fingerX = offsetX + velocityX / 2;
-                fingerY = offsetY + velocityY / 2;
+        // the scroller is stepped by the frame callback, so touch events between frames are drawn where they are
+        offsetX = scroller.getX();
+        offsetY = scroller.getY();
 
-                if (!isFingerDown) {
-                    lastX = offsetX;
-                    lastY = offsetY;
-                }
-            } else {
-                isScrolling = false;
-                fingerX = offsetX;
-                fingerY = offsetY;
-                velocityX = 0;
-                velocityY = 0;
-            }
+        boolean hasSize = canvas.getWidth() > 0 && canvas.getHeight() > 0 && getWidth() > 0 && getHeight() > 0;
+        boolean needsFrame = false;
+        if (hasSize && animationStore != null) {
+            needsFrame = animationStore.step(remaining) > 0;
+            if (animationStore.getRemovedCount() > 0)
+                removeStoredItems();
         }
 
+        if (metrics != null) {
+            long now = System.nanoTime();
+            metrics.animateNanos = now - phaseStart;
+            phaseStart = now;
+            RadialMetrics.endSection();
+            RadialMetrics.beginSection(RadialMetrics.TRACE_DRAW);
+        }
+
+        int drawn = 0, culled = 0;
         if (centerItem != null) {
-            if (targetCurrentUserScales.size() > 0) {
-                if (targetCurrentUserScales.size() > 1 && Math.abs(centerItem.scale - targetCurrentUserScales.get(0)) < 0.01)
-                    targetCurrentUserScales.remove(0);
+            if (targetCurrentUserScales.size() > 0)
+                centerItem.scale = RadialMath.approach(centerItem.scale, targetCurrentUserScales.next(centerItem.scale), remaining);
 
-                centerItem.scale = (targetCurrentUserScales.get(0) + (centerItem.scale * 5)) / 6;
+            float nScale = RadialMath.getEdgeScale(offsetX + centerItem.radius, offsetY + centerItem.radius, centerItem.radius, centerItem.scale, canvas.getWidth(), canvas.getHeight());
+
+            if (nScale > 0 && centerItem.getMatrix(drawMatrix, canvas.getWidth(), canvas.getHeight(), offsetX, offsetY)) {
+                drawItem(canvas, centerItem);
+                drawn++;
             }
+        }
 
-            float nScale = 0;
-            float distance = (float) Math.sqrt(Math.pow(offsetX + centerItem.radius, 2) + Math.pow(offsetY + centerItem.radius, 2));
-            int totalRadius = (canvas.getWidth() + canvas.getHeight()) / 4;
-            if (distance < totalRadius) {
-                nScale = Math.min((float) (Math.sqrt(totalRadius - distance) / Math.sqrt(centerItem.radius * 2)) * centerItem.scale, centerItem.scale);
+        if (hasSize) {
+            // the snapshot can be replaced between frames, but never while it is being drawn
+            LayoutSnapshot snapshot = this.snapshot;
+            BaseRadialItem[] items = snapshot.items;
+            RadialLayout itemLayout = snapshot.layout;
+
+            float itemOffsetX = offsetX - (shadowOffset + shadowRadius);
+            float itemOffsetY = offsetY - (shadowOffset + shadowRadius);
+
+            // only visit the rows that can intersect the visible area, plus any items being removed after the end of the layout
+            int start = 0, end = items.length;
+            int firstRow = 0, endRow = snapshot.getMaxRow() + 1;
+            if (itemLayout != null && itemLayout.size() <= items.length) {
+                float offsetDistance = (float) Math.sqrt((itemOffsetX * itemOffsetX) + (itemOffsetY * itemOffsetY));
+                int totalRadius = (canvas.getWidth() + canvas.getHeight()) / 4;
+                firstRow = itemLayout.getRowCount(offsetDistance - totalRadius);
+                endRow = itemLayout.getRowCount(offsetDistance + totalRadius);
+                start = itemLayout.getRowStart(firstRow);
+                end = itemLayout.getRowStart(endRow);
             }
 
-            if (nScale > 0) {
-                Matrix matrix = centerItem.getMatrix(canvas.getWidth(), canvas.getHeight(), offsetX, offsetY);
-                if (matrix != null)
-                    canvas.drawBitmap(centerItem.getCircleImage(this, shadowRadius + shadowOffset), matrix, paint);
+            boolean isRemoved = false;
+            for (int i = start; i < items.length; i++) {
+                if (i == end && itemLayout != null) {
+                    i = itemLayout.size();
+                    if (i >= items.length)
+                        break;
+                }
+
+                BaseRadialItem item = items[i];
+                boolean isBound = item.isBound();
+                if (isBound)
+                    item.syncFromStore();
+
+                if (item.getMatrix(drawMatrix, canvas.getWidth(), canvas.getHeight(), itemOffsetX, itemOffsetY)) {
+                    setHitArea(item);
+                    drawItem(canvas, item);
+                    drawn++;
+                } else culled++;
+
+                if (!isBound) {
+                    item.nextFrame(remaining);
+                    isRemoved |= item.isRemoved;
+                    if (!needsFrame)
+                        needsFrame = item.needsFrame();
+                }
             }
-        }
 
-        boolean needsFrame = false;
+            // items in the rows that were skipped are not drawn either
+            culled += items.length - (end - start) - (itemLayout != null ? Math.max(0, items.length - itemLayout.size()) : 0);
+
+            // but their animations keep running, so that they are in the right place once they scroll into view
+            if (isCulledAnimating && itemLayout != null && itemLayout.size() <= items.length) {
+                isCulledAnimating = false;
+                int count = itemLayout.size();
+                for (int i = 0; i < count; i++) {
+                    if (i == start && end > start) {
+                        i = end - 1;
+                        continue;
+                    }
 
-        if (isReady && canvas.getWidth() > 0 && canvas.getHeight() > 0 && getWidth() > 0 && getHeight() > 0) {
-            isFirstDrawn = true;
+                    BaseRadialItem item = items[i];
+                    if (!item.isBound() && item.isAnimating()) {
+                        item.nextFrame(remaining);
+                        isCulledAnimating = true;
+                    }
+                }
+
+                needsFrame |= isCulledAnimating;
+            }
 
-            for (int i = 0; i < items.size(); i++) {
-                BaseRadialItem item = items.get(i);
-                Matrix matrix = item.getMatrix(canvas.getWidth(), canvas.getHeight(), offsetX - (shadowOffset + shadowRadius), offsetY - (shadowOffset + shadowRadius));
-                if (matrix != null)
-                    canvas.drawBitmap(item.getCircleImage(this, shadowRadius + shadowOffset), matrix, paint);
+            if (isRemoved)
+                this.snapshot = snapshot.withoutRemovedItems();
 
-                item.nextFrame(this);
-                if (!needsFrame)
-                    needsFrame = item.needsFrame();
+            if (adapterBinder != null)
+                adapterBinder.update(this, this.snapshot, firstRow, endRow);
+
+            if (firstRow != visibleFirstRow || endRow != visibleEndRow) {
+                // items that were animating may have just scrolled out of view
+                isCulledAnimating = true;
+                visibleFirstRow = firstRow;
+                visibleEndRow = endRow;
+                scheduleTrim();
             }
         }
 
-        if ((centerItem != null && targetCurrentUserScales.size() > 0 && (targetCurrentUserScales.size() > 1 || Math.abs(targetCurrentUserScales.get(0) - centerItem.scale) >= 0.01))
-                || offsetX != 0 || offsetY != 0 || needsFrame || !isFirstDrawn) {
-            postInvalidate();
+        if (atlas != null && atlas.hasQueued())
+            schedulePacking();
+
+        if (metrics != null) {
+            metrics.drawNanos = System.nanoTime() - phaseStart;
+            metrics.itemsDrawn = drawn;
+            metrics.itemsCulled = culled;
+            metrics.animationFrames = frames;
+            metrics.collectBitmaps();
+            RadialMetrics.endSection();
+
+            if (metricsListener != null)
+                metricsListener.onMetrics(this, metrics);
+
+            metrics.reset();
+        }
+
+        isItemAnimating = needsFrame;
+        if (isAnimating())
+            scheduleFrame();
+        else {
+            clock.reset();
+            scheduleReturn();
+        }
+    }
+
+    /**
+     * Draws an item using the transformation in drawMatrix. If its circular bitmap
+     * is still being created, the previous one is scaled to the current size, or a
+     * solid circle is drawn if there is none.
+     *
+     * @param canvas the canvas to draw to
+     * @param item   the item to draw
+     */
+    private void drawItem(Canvas canvas, BaseRadialItem item) {
+        if (!item.hasImage()) {
+            // the item has not been bound by its adapter yet
+            drawPlaceholder(canvas, item);
+            return;
+        }
+
+        if (renderMode == RENDER_MODE_SHADER) {
+            if (item.getScaledImageAsync(this, shadowRadius + shadowOffset) != null) {
+                int saveCount = canvas.save();
+                canvas.concat(drawMatrix);
+                item.drawShadedImage(canvas, this, shaderPaint, shadowRadius + shadowOffset);
+                canvas.restoreToCount(saveCount);
+            } else drawPlaceholder(canvas, item);
+
+            return;
         }
+
+        Bitmap bitmap = item.getCircleImageAsync(this, shadowRadius + shadowOffset);
+        int size = (int) (item.radius * 2);
+        if (bitmap != null) {
+            if (item.circleSize != size && item.circleSize > 0) {
+                // keep the center of the old bitmap where the center of the new one will be
+                float previousCenter = bitmap.getWidth() / 2f;
+                drawMatrix.preTranslate((size - item.circleSize) / 2f, (size - item.circleSize) / 2f);
+                drawMatrix.preScale((float) size / item.circleSize, (float) size / item.circleSize, previousCenter, previousCenter);
+            }
+
+            // items that are drawn at a fraction of their size are drawn from a smaller copy of their bitmap, which is only created once they stop animating
+            int level = BaseRadialItem.getMipLevel(drawMatrix.mapRadius(1));
+            if (level > 0 && !item.isAnimating()) {
+                Bitmap mip = item.getCircleMip(this, level);
+                if (mip != null && mip != bitmap) {
+                    drawMatrix.preScale((float) bitmap.getWidth() / mip.getWidth(), (float) bitmap.getHeight() / mip.getHeight());
+                    while (item.getCircleLevelImage(level) != mip)
+                        level--;
+
+                    bitmap = mip;
+                } else level = 0;
+            } else level = 0;
+
+            if (atlas != null && item != centerItem && item.circleSize == size && !item.isCircleImageStale) {
+                if (atlas.isPacked(item, level, bitmap)) {
+                    atlas.draw(canvas, item, level, drawMatrix, paint);
+                    return;
+                }
+
+                // only bitmaps that have stopped changing size are packed, in a batch after the frame, so the pages are not redrawn while drawing
+                if (!item.isAnimating())
+                    atlas.queue(item, level, bitmap);
+            }
+
+            canvas.drawBitmap(bitmap, drawMatrix, paint);
+        } else drawPlaceholder(canvas, item);
+    }
+
+    /**
+     * Remembers the circle that an item is drawn in during this frame, using the
+     * transformation in drawMatrix, so that touches are tested against where the
+     * item actually is while it animates or is scaled down near the edges.
+     *
+     * @param item the item that is being drawn
+     */
+    private void setHitArea(BaseRadialItem item) {
+        drawPoint[0] = item.radius + shadowSizePx;
+        drawPoint[1] = drawPoint[0];
+        drawMatrix.mapPoints(drawPoint);
+        item.hitX = drawPoint[0];
+        item.hitY = drawPoint[1];
+        item.hitRadius = drawMatrix.mapRadius(item.radius);
+        item.hitFrame = framesRendered;
+    }
+
+    /**
+     * Draws a solid circle in place of an item that has no bitmaps yet.
+     *
+     * @param canvas the canvas to draw to
+     * @param item   the item to draw
+     */
+    private void drawPlaceholder(Canvas canvas, BaseRadialItem item) {
+        drawPoint[0] = item.radius + shadowSizePx;
+        drawPoint[1] = drawPoint[0];
+        drawMatrix.mapPoints(drawPoint);
+        canvas.drawCircle(drawPoint[0], drawPoint[1], drawMatrix.mapRadius(item.radius), placeholderPaint);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                isFingerDown = true;
                 downX = event.getX();
                 downY = event.getY();
-                if (!isDown) {
-                    isDown = true;
-                    handler.removeCallbacks(upRunnable);
-                } else isIgnorant = true;
                 isDragged = false;
+                scroller.down(downX, downY, TimeUnit.MILLISECONDS.toNanos(event.getEventTime()));
 
                 if (Math.sqrt(Math.pow((getWidth() / 2) - downX + offsetX, 2) + Math.pow((getHeight() / 2) - downY + offsetY, 2)) < centerItem.radius) {
                     clickCenterDown();
-
-                    for (BaseRadialItem item : items) {
-                        item.clickUp(this);
-                    }
+                    releasePressedItem();
                 } else {
                     clickCenterUp();
+                    releasePressedItem();
 
-                    for (BaseRadialItem item : items) {
-                        float itemX = (getWidth() / 2) + item.getX() + offsetX;
-                        float itemY = (getHeight() / 2) + item.getY() + offsetY;
-                        if (downX > itemX && downX - itemX < item.radius * 2 && downY > itemY && downY - itemY < item.radius * 2) {
-                            item.clickDown(this);
-                        } else item.clickUp(this);
-                    }
+                    pressedItem = findItem(downX, downY);
+                    if (pressedItem != null)
+                        pressedItem.clickDown(this);
                 }
                 return true;
             case MotionEvent.ACTION_MOVE:
-                isFingerDown = true;
-                handler.removeCallbacks(upRunnable);
-                int width = getWidth(), height = getHeight();
-                int distance = (RadialUtils.getRadius(maxRow + 1, itemRadius, itemSeparation) * 2) - Math.min(width, height);
-                if (distance > 0 && (ConversionUtils.pxToDp((int) Math.abs(event.getX() - downX)) * ConversionUtils.pxToDp((int) Math.abs(event.getY() - downY)) >= 64 || isDragged)) {
+                int distance = getScrollDistance(getWidth(), getHeight());
+                if (distance > 0 && (((int) Math.abs(event.getX() - downX) / density) * ((int) Math.abs(event.getY() - downY) / density) >= 64 || isDragged)) {
                     isDragged = true;
-                    isScrolling = true;
-                    fingerX = Math.max(-distance / 2, Math.min(distance / 2, event.getX() - downX + lastX));
-                    fingerY = Math.max(-distance / 2, Math.min(distance / 2, event.getY() - downY + lastY));
+                    scroller.setBound(distance / 2f);
+
+                    // every sample since the last event is passed on, so that the velocity of a fling follows the actual timing of the touch
+                    for (int i = 0; i < event.getHistorySize(); i++)
+                        scroller.drag(event.getHistoricalX(i), event.getHistoricalY(i), TimeUnit.MILLISECONDS.toNanos(event.getHistoricalEventTime(i)));
+
+                    scroller.drag(event.getX(), event.getY(), TimeUnit.MILLISECONDS.toNanos(event.getEventTime()));
+                    requestFrame();
 
                     clickCenterUp();
-                    for (BaseRadialItem item : items) {
-                        item.clickUp(this);
-                    }
+                    releasePressedItem();
                     return true;
                 } else return false;
             case MotionEvent.ACTION_CANCEL:
-                isFingerDown = false;
-                handler.removeCallbacks(upRunnable);
-                handler.post(upRunnable);
                 isDragged = false;
+                scroller.returnToCenter();
+                requestFrame();
 
                 clickCenterUp();
-                for (BaseRadialItem item : items) {
-                    item.clickUp(this);
-                }
+                releasePressedItem();
                 break;
             case MotionEvent.ACTION_UP:
-                isFingerDown = false;
-                for (BaseRadialItem item : items) {
-                    item.clickUp(this);
-                }
+                releasePressedItem();
 
-                if (ConversionUtils.pxToDp((int) Math.abs(event.getX() - downX)) * ConversionUtils.pxToDp((int) Math.abs(event.getY() - downY)) < 64 && !isDragged) {
-                    if (!isIgnorant)
-                        isDown = false;
+                // flings the layout if it was dragged, and returns it to the center a while later
+                scroller.up(TimeUnit.MILLISECONDS.toNanos(event.getEventTime()));
+                requestFrame();
 
+                if (((int) Math.abs(event.getX() - downX) / density) * ((int) Math.abs(event.getY() - downY) / density) < 64 && !isDragged) {
                     float eventX = event.getX();
                     float eventY = event.getY();
 
@@ -387,52 +1331,104 @@ public class RadialLayoutView extends View {
                     } else {
                         clickCenterUp();
 
-                        for (int i = 0; i < items.size(); i++) {
-                            BaseRadialItem item = items.get(i);
-                            float itemX = (getWidth() / 2) + item.getX() + offsetX;
-                            float itemY = (getHeight() / 2) + item.getY() + offsetY;
-                            if (eventX > itemX && eventX - itemX < item.radius * 2 && eventY > itemY && eventY - itemY < item.radius * 2) {
-                                item.clickBack(this);
+                        BaseRadialItem item = findItem(eventX, eventY);
+                        if (item != null) {
+                            item.clickBack(this);
 
-                                if (listener != null)
-                                    listener.onItemClick(this, item, i);
-
-                                break;
-                            }
+                            if (listener != null)
+                                listener.onItemClick(this, item, snapshot.indexOf(item));
                         }
                     }
-                } else {
-                    clickCenterUp();
-                    handler.removeCallbacks(upRunnable);
-                    lastX = offsetX;
-                    lastY = offsetY;
-                    handler.postDelayed(upRunnable, 2000);
-                }
+                } else clickCenterUp();
                 break;
         }
         return super.onTouchEvent(event);
     }
 
+    /**
+     * @param width  the width of the canvas
+     * @param height the height of the canvas
+     * @return the distance (px) that the layout can be scrolled across in each direction, or 0 or less if it fits in the canvas
+     */
+    private int getScrollDistance(int width, int height) {
+        RadialLayout layout = snapshot.layout;
+        int radius = layout != null ? layout.getRowRadius(layout.getMaxRow() + 1) : RadialUtils.getRadius(1, itemRadius, itemSeparation);
+        return (radius * 2) - Math.min(width, height);
+    }
+
+    /**
+     * Finds the item that was drawn underneath a touch event in the last frame. The
+     * index built when the layout was last applied is tried first, but items that
+     * are animating or scaled down near the edges are not drawn at their position
+     * in the layout, so if it misses, the pressed item, any items being removed, and
+     * the animating items in the rows on either side of the point are checked.
+     *
+     * @param x the x coordinate of the event, relative to the view
+     * @param y the y coordinate of the event, relative to the view
+     * @return the item at the position, or null if there is none
+     */
+    @Nullable
+    private BaseRadialItem findItem(float x, float y) {
+        LayoutSnapshot snapshot = this.snapshot;
+        float layoutX = x - (getWidth() / 2) - offsetX, layoutY = y - (getHeight() / 2) - offsetY;
+        BaseRadialItem item = snapshot.findItem(layoutX, layoutY);
+        if (item != null && item.isDrawnAt(x, y, framesRendered))
+            return item;
+
+        // a pressed item is drawn larger than its circle in the layout
+        if (pressedItem != null && pressedItem.isDrawnAt(x, y, framesRendered))
+            return pressedItem;
+
+        BaseRadialItem[] items = snapshot.items;
+        RadialLayout layout = snapshot.layout;
+        int size = layout != null ? Math.min(layout.size(), items.length) : 0;
+
+        // items that are being removed are drawn after the end of the layout, on top of the rest
+        for (int i = items.length - 1; i >= size; i--) {
+            if (items[i].isDrawnAt(x, y, framesRendered))
+                return items[i];
+        }
+
+        if (layout == null)
+            return null;
+
+        // other items are only drawn away from their circle in the index while they animate along their row, so only the rows on either side of the point are checked
+        int row = layout.getRowCount((float) Math.sqrt((layoutX * layoutX) + (layoutY * layoutY)));
+        int start = layout.getRowStart(Math.max(0, row - 1)), end = Math.min(layout.getRowStart(row + 1), size);
+        for (int i = end - 1; i >= start; i--) {
+            if (items[i].isAnimating() && items[i].isDrawnAt(x, y, framesRendered))
+                return items[i];
+        }
+
+        return null;
+    }
+
+    private void releasePressedItem() {
+        if (pressedItem != null) {
+            pressedItem.clickUp(this);
+            pressedItem = null;
+        }
+    }
+
     private void clickCenterDown() {
-        targetCurrentUserScales.clear();
-        targetCurrentUserScales.add(CLICK_DOWN_SCALE);
+        targetCurrentUserScales.set(CLICK_DOWN_SCALE);
 
-        postInvalidate();
+        if (centerItem != null && targetCurrentUserScales.needsFrame(centerItem.scale))
+            requestFrame();
     }
 
     private void clickCenterUp() {
-        targetCurrentUserScales.clear();
-        targetCurrentUserScales.add(1f);
+        targetCurrentUserScales.set(1);
 
-        postInvalidate();
+        if (centerItem != null && targetCurrentUserScales.needsFrame(centerItem.scale))
+            requestFrame();
     }
 
     private void clickCenterBack() {
-        targetCurrentUserScales.clear();
-        targetCurrentUserScales.add(CLICK_UP_SCALE);
-        targetCurrentUserScales.add(1f);
+        targetCurrentUserScales.set(CLICK_UP_SCALE, 1);
 
-        postInvalidate();
+        if (centerItem != null && targetCurrentUserScales.needsFrame(centerItem.scale))
+            requestFrame();
     }
 
     public interface OnCenterClickListener {
@@ -443,6 +1439,25 @@ public class RadialLayoutView extends View {
         void onItemClick(RadialLayoutView layout, BaseRadialItem item, int index);
     }
 
+    public interface OnItemsDiffListener {
+        /**
+         * @param layout    the layout that the items were updated in
+         * @param inserted  the amount of items with ids that were not in the layout before
+         * @param removed   the amount of items whose ids are no longer in the layout
+         * @param moved     the amount of items that are still in the layout, but at a different position
+         * @param unchanged the amount of items that are still in the layout at the same position
+         */
+        void onItemsDiffed(RadialLayoutView layout, int inserted, int removed, int moved, int unchanged);
+    }
+
+    public interface OnMetricsListener {
+        /**
+         * @param layout  the layout that drew the frame
+         * @param metrics the metrics of the frame, which are reused for the next one
+         */
+        void onMetrics(RadialLayoutView layout, RadialMetrics metrics);
+    }
+
     public static class Builder {
 
         private RadialLayoutView view;
@@ -456,12 +1471,23 @@ public class RadialLayoutView extends View {
 
         private OnAppliedListener listener;
         private boolean isFirstTime;
+        private RadialLayout layout;
+        private long layoutNanos;
 
         private Builder(RadialLayoutView view, List<BaseRadialItem> items, boolean isFirstTime) {
             this.view = view;
-            this.items = items;
+
+            // items that are already displayed are copied, as the layout is calculated on another thread
+            // while they are drawn; new items are not visible to any other thread until they are published
+            Set<BaseRadialItem> displayed = Collections.newSetFromMap(new IdentityHashMap<BaseRadialItem, Boolean>());
+            Collections.addAll(displayed, view.snapshot.items);
+
+            this.items = new ArrayList<>(items.size());
+            for (BaseRadialItem item : items)
+                this.items.add(displayed.contains(item) ? item.copy() : item);
+
             itemRadius = view.itemRadius;
-            itemRadiusVariation = 6;
+            itemRadiusVariation = view.itemRadiusVariation;
             itemSeparation = view.itemSeparation;
             shadowRadius = view.shadowRadius;
             shadowOffset = view.shadowOffset;
@@ -497,189 +1523,257 @@ public class RadialLayoutView extends View {
             apply(null);
         }
 
+        /**
+         * Calculates the layout in the background, and applies it once it is done. If
+         * another layout is applied before this one has started, this one is skipped,
+         * and its listener is not called.
+         *
+         * @param listener called once the layout has been applied
+         */
         public void apply(@Nullable OnAppliedListener listener) {
             this.listener = listener;
-
-            new Action<List<BaseRadialItem>>() {
-                @NonNull
-                @Override
-                public String id() {
-                    return "radialItems";
-                }
-
-                @Nullable
-                @Override
-                protected List<BaseRadialItem> run() {
-                    return applySynchronous(false);
-                }
-
-                @Override
-                protected void done(@Nullable List<BaseRadialItem> result) {
-                    onApplied(result);
-                }
-            }.execute();
+            view.layoutExecutor.execute(new ApplyTask());
         }
 
+        /**
+         * Calculates the layout on the current thread, cancelling any layouts that are
+         * still being calculated in the background. The layout is always applied on the
+         * main thread, so if this is called from another thread, it waits until the
+         * main thread has applied it.
+         */
         public void applySynchronous() {
-            applySynchronous(true);
-        }
-
-        private List<BaseRadialItem> applySynchronous(boolean isActuallySynchronous) {
-            List<BaseRadialItem> items = new ArrayList<>();
-            if (isFirstTime)
-                items.addAll(Builder.this.items);
-            else {
-                for (BaseRadialItem item : Builder.this.items)
-                    items.add(item.copy());
-            }
-
-            Collections.sort(items, new Comparator<BaseRadialItem>() {
-                @Override
-                public int compare(BaseRadialItem o1, BaseRadialItem o2) {
-                    return o1.size - o2.size; //sort small -> big
-                }
-            });
-
-            for (int i = 0; i < items.size(); i++) {
-                int radius = ConversionUtils.dpToPx((itemRadius - (itemRadiusVariation * 2)) + (itemRadiusVariation * 2 * ((float) i / items.size())));
-                //Log.d("Radial", "Item: " + i + ", Size: " + items.get(i).size + ", Radius: " + radius);
-                BaseRadialItem item = items.get(i);
-                if (isFirstTime)
-                    item.setRadius(radius, shadowRadius + shadowOffset);
-                else if (item.radius <= 0) //only update radius for new items, reduces memory usage & makes transition smoother
-                    item.radius = radius;
-
-                if (shadowRadius != view.shadowRadius || shadowOffset != view.shadowOffset) {
-                    item.scaledImage = null;
-                    item.circleImage = null;
-                }
+            view.layoutExecutor.cancel();
+            final List<BaseRadialItem> items = calculate(null);
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                onApplied(items);
+                return;
             }
 
-            Collections.sort(items, new Comparator<BaseRadialItem>() {
+            final CountDownLatch latch = new CountDownLatch(1);
+            view.handler.post(new Runnable() {
                 @Override
-                public int compare(BaseRadialItem o1, BaseRadialItem o2) {
-                    return o1.distance - o2.distance; //sort small -> big
+                public void run() {
+                    try {
+                        onApplied(items);
+                    } finally {
+                        latch.countDown();
+                    }
                 }
             });
 
-            int size = 0, circumference = RadialUtils.getCircumference(0, itemRadius, itemSeparation), usedCircumference = 0;
-            for (int i = 0; i < items.size(); i++) {
-                BaseRadialItem item = items.get(i);
-                if (usedCircumference + (item.radius * 2) + (ConversionUtils.dpToPx(8) * i) < circumference) {
-                    usedCircumference += (item.radius * 2) + ConversionUtils.dpToPx(8);
-                    item.row = 0;
-                    size++;
-
-                    //Log.d("Radial", "Item: " + items.indexOf(item) + ", Row: 0");
-                } else break;
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }
 
-            int padding = ((circumference - usedCircumference) / (size + 1)) + ConversionUtils.dpToPx(8);
-            items.get(0).radian = -Math.PI / 2;
-            for (int i = 1; i < size; i++) {
-                BaseRadialItem item = items.get(i), previousItem = items.get(i - 1);
-                float difference = previousItem.radius + item.radius;
-                int radius = RadialUtils.getRadius(0, itemRadius, itemSeparation);
-                double cosine = ((2 * Math.pow(radius, 2)) - Math.pow(difference, 2)) / (2 * Math.pow(radius, 2));
-                item.radian = previousItem.radian + Math.acos(cosine) + (((double) padding / circumference) * 2 * Math.PI);
-                //Log.d("Radial", "Row: 0, Item: " + i + ", Difference: " + difference + ", Cosine: " + cosine + ", Degrees: " + (item.radian * 180 / Math.PI));
+        /**
+         * Calculates the positions of the items, without changing anything that is displayed.
+         *
+         * @param task the task that the layout is calculated by, which is checked for cancellation between items, or null
+         * @return the items in the order of the layout, or null if the task was cancelled
+         */
+        @Nullable
+        private List<BaseRadialItem> calculate(@Nullable LayoutExecutor.Task<?> task) {
+            RadialMetrics metrics = view.metrics;
+            long start = 0;
+            if (metrics != null) {
+                RadialMetrics.beginSection(RadialMetrics.TRACE_LAYOUT);
+                start = System.nanoTime();
             }
 
-            for (int i = 1; true; i++) {
-                int rowStart = size;
-
-                if (rowStart == 0 || rowStart >= items.size())
-                    break;
-                else view.maxRow = i;
-
-                int rowSize = 0, rowCircumference = RadialUtils.getCircumference(i, itemRadius, itemSeparation), rowUsedCircumference = 0;
-                for (int i2 = rowStart; i2 < items.size(); i2++) {
-                    BaseRadialItem item = items.get(i2);
-                    if (rowUsedCircumference + (item.radius * 2) + (ConversionUtils.dpToPx(itemSeparation) * i) < rowCircumference) {
-                        rowUsedCircumference += (item.radius * 2) + ConversionUtils.dpToPx(itemSeparation);
-                        item.row = i;
-                        rowSize++;
-
-                        //Log.d("Radial", "Row: " + item.row + ", Item: " + i2);
-                    } else break;
+            try {
+                int count = Builder.this.items.size();
+                int[] sizes = new int[count];
+                int[] distances = new int[count];
+                float[] radii = isFirstTime ? null : new float[count];
+                for (int i = 0; i < count; i++) {
+                    BaseRadialItem item = Builder.this.items.get(i);
+                    sizes[i] = item.size;
+                    distances[i] = item.distance;
+                    if (radii != null)
+                        radii[i] = item.radius;
                 }
 
-                int rowPadding = ((rowCircumference - rowUsedCircumference) / (rowSize + 1)) + ConversionUtils.dpToPx(8);
-                items.get(rowStart).radian = (items.get(rowStart - 1).radian + items.get(rowStart - 2).radian) / 2;
-
-                for (int i2 = rowStart; i2 < rowStart + rowSize; i2++) {
-                    BaseRadialItem item, previousItem = items.get(i2 - 1);
-                    try {
-                        item = items.get(i2);
-                    } catch (IndexOutOfBoundsException e) {
-                        break;
-                    }
+                layout = new RadialLayoutEngine(ConversionUtils.getDensity())
+                        .withItemRadius(itemRadius)
+                        .withItemRadiusVariation(itemRadiusVariation)
+                        .withItemSeparation(itemSeparation)
+                        .layout(sizes, distances, radii, isFirstTime ? null : view.snapshot.layout);
+
+                List<BaseRadialItem> items = new ArrayList<>(count);
+                for (int i = 0; i < layout.size(); i++) {
+                    // scaling the images of a first layout can take a while, so a newer layout can stop it early
+                    if (task != null && task.isCancelled())
+                        return null;
+
+                    BaseRadialItem item = Builder.this.items.get(layout.getIndex(i));
+                    item.cache = view.bitmapCache;
+                    item.metrics = metrics;
+                    if (isFirstTime)
+                        item.setRadius(layout.getRadius(i), shadowRadius + shadowOffset);
+                    else item.radius = layout.getRadius(i);
+
+                    if (shadowRadius != view.shadowRadius || shadowOffset != view.shadowOffset)
+                        item.invalidateImages();
+
+                    item.row = layout.getRow(i);
+                    item.rowRadius = layout.getRowRadius(item.row);
+                    item.radian = layout.getRadian(i);
+                    items.add(item);
+                }
 
-                    float difference = previousItem.radius + item.radius;
-                    int radius = RadialUtils.getRadius(i, itemRadius, itemSeparation);
-                    double cosine = ((2 * Math.pow(radius, 2)) - Math.pow(difference, 2)) / (2 * Math.pow(radius, 2));
-                    item.radian = previousItem.radian + Math.acos(cosine) + (((double) rowPadding / rowCircumference) * 2 * Math.PI);
-                    //Log.d("Radial", "Row: " + item.row + ", Item: " + i2 + ", Difference: " + difference + ", Cosine: " + cosine + ", Degrees: " + (item.radian * 180 / Math.PI));
+                return items;
+            } finally {
+                if (metrics != null) {
+                    layoutNanos = System.nanoTime() - start;
+                    RadialMetrics.endSection();
                 }
+            }
+        }
 
-                size += rowSize;
+        private void onApplied(List<BaseRadialItem> result) {
+            RadialMetrics metrics = view.metrics;
+            long start = 0;
+            if (metrics != null) {
+                RadialMetrics.beginSection(RadialMetrics.TRACE_APPLY);
+                start = System.nanoTime();
             }
 
-            if (isActuallySynchronous)
-                onApplied(items);
+            view.syncAnimationStore();
+            BaseRadialItem[] current = view.snapshot.items;
+            List<BaseRadialItem> items;
+            if (view.isReady && !isFirstTime) {
+                // match the new items to the current ones by their ids, so that items keep their bitmaps when others are inserted before them
+                Map<String, List<BaseRadialItem>> currentItems = new HashMap<>();
+                Map<BaseRadialItem, Integer> currentPositions = new IdentityHashMap<>();
+                for (int i = 0; i < current.length; i++) {
+                    BaseRadialItem item = current[i];
+                    List<BaseRadialItem> matches = currentItems.get(item.id);
+                    if (matches == null) {
+                        matches = new LinkedList<>();
+                        currentItems.put(item.id, matches);
+                    }
 
-            return items;
-        }
+                    matches.add(item);
+                    currentPositions.put(item, i);
+                }
 
-        private void onApplied(List<BaseRadialItem> result) {
-            if (view.isReady && result != null && !isFirstTime) {
+                items = new ArrayList<>(current.length + result.size());
+                int inserted = 0, moved = 0, unchanged = 0;
                 for (int i = 0; i < result.size(); i++) {
                     BaseRadialItem item = result.get(i);
-                    item.itemRadius = itemRadius;
-                    item.itemSeparation = itemSeparation;
 
-                    if (i < view.items.size())
-                        view.items.get(i).animateTo(item, view, shadowRadius + shadowOffset);
-                    else {
-                        view.items.add(item);
+                    List<BaseRadialItem> matches = currentItems.get(item.id);
+                    if (matches != null && matches.size() > 0) {
+                        BaseRadialItem match = matches.remove(0);
+                        if (currentPositions.get(match) == i && !match.isRemoving)
+                            unchanged++;
+                        else moved++;
+
+                        match.animateTo(item, view, shadowRadius + shadowOffset);
+                        item.releaseImages();
+                        items.add(match);
+                    } else {
+                        inserted++;
+                        items.add(item);
                         item.scale = 0;
                         item.targetRadian = item.radian;
                         item.clickUp(view);
                     }
                 }
 
-                for (int i = result.size(); i < view.items.size(); i++) {
-                    view.items.get(i).removeFrom(view);
+                // any items that were not matched are animated out after the rest of the layout
+                int removed = 0;
+                for (BaseRadialItem item : current) {
+                    if (currentItems.get(item.id).contains(item)) {
+                        if (!item.isRemoving)
+                            removed++;
+
+                        items.add(item);
+                        item.removeFrom(view);
+                    }
                 }
+
+                if (view.diffListener != null)
+                    view.diffListener.onItemsDiffed(view, inserted, removed, moved, unchanged);
             } else {
-                for (BaseRadialItem item : view.items) {
-                    item.itemRadius = itemRadius;
-                    item.itemSeparation = itemSeparation;
+                items = result;
+                for (BaseRadialItem item : items) {
                     //Log.d("Radial", "Item: " + RadialLayout.this.items.indexOf(item) + ", X: " + item.getX() + ", Y: " + item.getY());
                     item.scale = 0;
                     item.targetRadian = item.radian;
                     item.clickUp(view);
                 }
 
+                // none of the previous items are displayed any more, so their bitmaps can be reused
+                for (BaseRadialItem item : current)
+                    item.releaseImages();
+
                 view.isReady = true;
             }
 
-            if (view.centerItem != null && (view.shadowRadius != shadowRadius || view.shadowOffset != shadowOffset)) {
-                view.centerItem.scaledImage = null;
-                view.centerItem.circleImage = null;
+            // the new items are only published once they are complete, so drawing never sees a partial layout
+            view.snapshot = new LayoutSnapshot(items.toArray(new BaseRadialItem[items.size()]), layout);
+            view.isCulledAnimating = true;
+            view.bindAnimationStore();
+            if (view.atlas != null) {
+                view.atlas.update(view.snapshot.itemList);
+                if (view.atlas.hasQueued())
+                    view.schedulePacking();
+            }
+
+            view.trimToBudget();
+
+            if (view.shadowRadius != shadowRadius || view.shadowOffset != shadowOffset) {
+                view.shadowSprites.clear();
+                if (view.centerItem != null)
+                    view.centerItem.invalidateImages();
             }
 
             view.itemRadius = itemRadius;
+            view.itemRadiusVariation = itemRadiusVariation;
             view.itemSeparation = itemSeparation;
             view.shadowRadius = shadowRadius;
             view.shadowOffset = shadowOffset;
-            view.shadowPaint.setShadowLayer(ConversionUtils.dpToPx(shadowRadius), 0, ConversionUtils.dpToPx(shadowOffset), view.shadowColor);
-            view.postInvalidate();
+            view.density = layout.getDensity();
+            view.shadowRadiusPx = RadialMath.dpToPx(view.density, shadowRadius);
+            view.shadowOffsetPx = RadialMath.dpToPx(view.density, shadowOffset);
+            view.shadowSizePx = RadialMath.dpToPx(view.density, shadowRadius + shadowOffset);
+            view.shadowPaint.setShadowLayer(view.shadowRadiusPx, 0, view.shadowOffsetPx, view.shadowColor);
+            view.requestFrame();
+
+            if (metrics != null) {
+                metrics.layoutNanos = layoutNanos;
+                metrics.applyNanos = System.nanoTime() - start;
+                metrics.layoutItemCount = result.size();
+                RadialMetrics.endSection();
+            }
 
             if (listener != null)
                 listener.onApplied(view);
         }
 
+        private class ApplyTask extends LayoutExecutor.Task<List<BaseRadialItem>> {
+
+            @Nullable
+            @Override
+            List<BaseRadialItem> run() {
+                return calculate(this);
+            }
+
+            @Override
+            void done(@Nullable List<BaseRadialItem> result) {
+                onApplied(result);
+            }
+
+            @Override
+            LayoutExecutor.Task<List<BaseRadialItem>> restart() {
+                return new ApplyTask();
+            }
+        }
+
         public interface OnAppliedListener {
             void onApplied(RadialLayoutView view);
         }
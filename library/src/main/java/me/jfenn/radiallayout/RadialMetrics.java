@@ -0,0 +1,186 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counts of the work done by a view, reported to its OnMetricsListener
+ * after every frame that is drawn. The same instance is reused for every frame, so
+ * its values should be copied if they are needed afterwards.
+ *
+ * While the metrics of a view are being collected, each phase is also marked as a
+ * section in system traces (on API 18 and above).
+ */
+public final class RadialMetrics {
+
+    static final String TRACE_LAYOUT = "RadialLayout#layout";
+    static final String TRACE_APPLY = "RadialLayout#apply";
+    static final String TRACE_ANIMATE = "RadialLayout#animate";
+    static final String TRACE_DRAW = "RadialLayout#draw";
+    static final String TRACE_BITMAP = "RadialLayout#bitmap";
+
+    // bitmaps are created on worker threads, so these are only read when the frame is reported
+    private AtomicInteger pendingBitmapsCreated = new AtomicInteger();
+    private AtomicLong pendingBitmapBytes = new AtomicLong();
+    private AtomicLong pendingBitmapNanos = new AtomicLong();
+
+    long layoutNanos;
+    long applyNanos;
+    int layoutItemCount;
+
+    long animateNanos;
+    long drawNanos;
+    int itemsDrawn;
+    int itemsCulled;
+    float animationFrames;
+    long framesSkipped;
+
+    private int bitmapsCreated;
+    private long bitmapBytes;
+    private long bitmapNanos;
+
+    RadialMetrics() {
+    }
+
+    /**
+     * @return the time (ns) spent calculating the layout that was applied since the last frame, or 0 if there was none
+     */
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+    /**
+     * @return the time (ns) spent applying the layout that was applied since the last frame, or 0 if there was none
+     */
+    public long getApplyNanos() {
+        return applyNanos;
+    }
+
+    /**
+     * @return the amount of items in the layout that was applied since the last frame, or 0 if there was none
+     */
+    public int getLayoutItemCount() {
+        return layoutItemCount;
+    }
+
+    /**
+     * @return the time (ns) spent scrolling and animating the items during the frame
+     */
+    public long getAnimateNanos() {
+        return animateNanos;
+    }
+
+    /**
+     * @return the time (ns) spent positioning and drawing the items during the frame
+     */
+    public long getDrawNanos() {
+        return drawNanos;
+    }
+
+    /**
+     * @return the amount of items that were drawn in the frame, including the center item
+     */
+    public int getItemsDrawn() {
+        return itemsDrawn;
+    }
+
+    /**
+     * @return the amount of items that were not drawn in the frame because they were outside of the view
+     */
+    public int getItemsCulled() {
+        return itemsCulled;
+    }
+
+    /**
+     * @return the amount of (60 Hz) frames that the animations were advanced by in the frame
+     */
+    public float getAnimationFrames() {
+        return animationFrames;
+    }
+
+    /**
+     * @return the amount of frames that were skipped since the last frame because nothing had changed
+     */
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    /**
+     * @return the amount of bitmaps that were created for items since the last frame, not counting any that were found in the cache
+     */
+    public int getBitmapsCreated() {
+        return bitmapsCreated;
+    }
+
+    /**
+     * @return the amount of pixel memory (bytes) of the bitmaps that were created for items since the last frame
+     */
+    public long getBitmapBytes() {
+        return bitmapBytes;
+    }
+
+    /**
+     * @return the time (ns) that worker threads spent creating bitmaps for items since the last frame
+     */
+    public long getBitmapNanos() {
+        return bitmapNanos;
+    }
+
+    /**
+     * Counts a bitmap that has been created for an item. This can be called from any thread.
+     *
+     * @param bitmap the bitmap that was created
+     */
+    void onBitmapCreated(@Nullable Bitmap bitmap) {
+        if (bitmap == null)
+            return;
+
+        pendingBitmapsCreated.incrementAndGet();
+        pendingBitmapBytes.addAndGet(bitmap.getRowBytes() * bitmap.getHeight());
+    }
+
+    /**
+     * Adds the time that a worker thread has spent creating bitmaps. This can be called from any thread.
+     *
+     * @param nanos the time (ns) that was spent
+     */
+    void onBitmapNanos(long nanos) {
+        pendingBitmapNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Moves the counts of the bitmaps that have been created since the last frame into
+     * the values that are reported for this one.
+     */
+    void collectBitmaps() {
+        bitmapsCreated = pendingBitmapsCreated.getAndSet(0);
+        bitmapBytes = pendingBitmapBytes.getAndSet(0);
+        bitmapNanos = pendingBitmapNanos.getAndSet(0);
+    }
+
+    /**
+     * Clears the values that are only reported once, after they have been reported.
+     */
+    void reset() {
+        layoutNanos = 0;
+        applyNanos = 0;
+        layoutItemCount = 0;
+        framesSkipped = 0;
+    }
+
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.beginSection(name);
+    }
+
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.endSection();
+    }
+
+}
@@ -0,0 +1,110 @@
+package me.jfenn.radiallayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+/**
+ * Draws the shadows of items from blurred circles that are rendered once for each
+ * radius bucket and shadow, rather than by drawing with Paint.setShadowLayer, which
+ * is only supported for shapes when the view is drawn in software.
+ */
+class ShadowSprites {
+
+    /**
+     * the difference (in px) between the radii of neighbouring sprites, which are scaled to fit the circles in between
+     */
+    static final int BUCKET_SIZE = 8;
+
+    private LruCache<Long, Bitmap> sprites;
+    private Paint paint;
+    private RectF bounds;
+    private long byteCount;
+
+    /**
+     * @param maxSprites the amount of sprites to keep
+     */
+    ShadowSprites(int maxSprites) {
+        sprites = new LruCache<Long, Bitmap>(maxSprites) {
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
+                byteCount -= oldValue.getByteCount();
+            }
+        };
+        paint = new Paint();
+        paint.setFilterBitmap(true);
+        bounds = new RectF();
+    }
+
+    private static long getKey(int bucket, int shadowRadius, int shadowOffset, int shadowColor) {
+        return ((long) shadowColor << 32) | ((long) (bucket & 0xFFFF) << 16) | ((shadowRadius & 0xFF) << 8) | (shadowOffset & 0xFF);
+    }
+
+    /**
+     * @return the distance between the center of a sprite and its left and top edges
+     */
+    private static int getPadding(int bucket, int shadowRadius) {
+        return bucket + ((shadowRadius * 3) / 2) + 1;
+    }
+
+    /**
+     * Draws the shadow of a circle.
+     *
+     * @param canvas       the canvas to draw to
+     * @param centerX      the x coordinate of the center of the circle
+     * @param centerY      the y coordinate of the center of the circle
+     * @param radius       the radius of the circle
+     * @param shadowRadius the blur radius (px) of the shadow
+     * @param shadowOffset the vertical offset (px) of the shadow
+     * @param shadowColor  the color of the shadow
+     * @param shadowPaint  a paint with the same shadow layer set, used to render new sprites
+     */
+    void draw(Canvas canvas, float centerX, float centerY, float radius, int shadowRadius, int shadowOffset, int shadowColor, Paint shadowPaint) {
+        if (radius <= 0)
+            return;
+
+        int bucket = Math.max(BUCKET_SIZE, (((int) Math.ceil(radius) + BUCKET_SIZE - 1) / BUCKET_SIZE) * BUCKET_SIZE);
+        shadowRadius = Math.min(shadowRadius, 0xFF);
+        shadowOffset = Math.min(shadowOffset, 0xFF);
+
+        long key = getKey(bucket, shadowRadius, shadowOffset, shadowColor);
+        Bitmap sprite = sprites.get(key);
+        if (sprite == null) {
+            sprite = render(bucket, shadowRadius, shadowOffset, shadowPaint);
+            byteCount += sprite.getByteCount();
+            sprites.put(key, sprite);
+        }
+
+        float scale = radius / bucket;
+        float padding = getPadding(bucket, shadowRadius) * scale;
+        bounds.set(centerX - padding, centerY - padding, centerX - padding + (sprite.getWidth() * scale), centerY - padding + (sprite.getHeight() * scale));
+        canvas.drawBitmap(sprite, null, bounds, paint);
+    }
+
+    /**
+     * Renders the shadow of a circle into a new sprite.
+     */
+    private static Bitmap render(int bucket, int shadowRadius, int shadowOffset, Paint shadowPaint) {
+        int padding = getPadding(bucket, shadowRadius);
+        Bitmap sprite = Bitmap.createBitmap(padding * 2, (padding * 2) + shadowOffset, Bitmap.Config.ARGB_8888);
+        new Canvas(sprite).drawCircle(padding, padding, bucket, shadowPaint);
+        return sprite;
+    }
+
+    /**
+     * Removes every sprite, after the shadow has changed.
+     */
+    void clear() {
+        sprites.evictAll();
+    }
+
+    /**
+     * @return the amount of pixel memory (in bytes) held by the sprites
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+}
@@ -2,8 +2,17 @@ package me.jfenn.radiallayout.utils;
 
 import android.content.res.Resources;
 
+import me.jfenn.radiallayout.engine.RadialMath;
+
 public class ConversionUtils {
 
+    /**
+     * @return the density (pixels per dp) of the display
+     */
+    public static float getDensity() {
+        return Resources.getSystem().getDisplayMetrics().density;
+    }
+
     /**
      * Converts density pixels to regular pixels.
      *
@@ -11,7 +20,7 @@ public class ConversionUtils {
      * @return regular pixels
      */
     public static int dpToPx(float dp) {
-        return (int) (Resources.getSystem().getDisplayMetrics().density * dp);
+        return RadialMath.dpToPx(getDensity(), dp);
     }
 
     /**
@@ -21,6 +30,6 @@ public class ConversionUtils {
      * @return density pixels
      */
     public static float pxToDp(int pixels) {
-        return pixels / Resources.getSystem().getDisplayMetrics().density;
+        return pixels / getDensity();
     }
 }
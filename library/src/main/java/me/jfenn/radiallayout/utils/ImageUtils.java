@@ -2,10 +2,16 @@ package me.jfenn.radiallayout.utils;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.graphics.drawable.VectorDrawableCompat;
 
+import me.jfenn.radiallayout.BitmapPool;
+
 public class ImageUtils {
 
     /**
@@ -15,21 +21,90 @@ public class ImageUtils {
      * @return a bitmap
      */
     public static Bitmap drawableToBitmap(Drawable drawable) {
+        return drawableToBitmap(drawable, null);
+    }
+
+    /**
+     * Converts a drawable to a bitmap, taken from a pool if the drawable has to be
+     * drawn. The bitmap of a BitmapDrawable is returned as it is, and must not be
+     * put back into the pool.
+     *
+     * @param drawable a drawable
+     * @param pool     the pool to take the bitmap from, or null to allocate a new one
+     * @return a bitmap
+     */
+    public static Bitmap drawableToBitmap(Drawable drawable, @Nullable BitmapPool pool) {
         if (drawable == null) return null;
         if (drawable instanceof BitmapDrawable) return ((BitmapDrawable) drawable).getBitmap();
         if (drawable instanceof VectorDrawableCompat)
-            return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+            return createBitmap(pool, 1, 1, Bitmap.Config.ARGB_8888);
 
         int width = drawable.getIntrinsicWidth();
         width = width > 0 ? width : 1;
         int height = drawable.getIntrinsicHeight();
         height = height > 0 ? height : 1;
 
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Bitmap bitmap = createBitmap(pool, width, height, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(bitmap);
         drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
         drawable.draw(canvas);
 
         return bitmap;
     }
+
+    /**
+     * Scales and crops the center of a bitmap to fill the given dimensions, in the
+     * same way as ThumbnailUtils.extractThumbnail, but into a bitmap from a pool.
+     *
+     * @param source the bitmap to scale
+     * @param width  the width of the thumbnail
+     * @param height the height of the thumbnail
+     * @param pool   the pool to take the thumbnail from, or null to allocate a new one
+     * @return the thumbnail
+     */
+    public static Bitmap extractThumbnail(@NonNull Bitmap source, int width, int height, @Nullable BitmapPool pool) {
+        Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = createBitmap(pool, width, height, config);
+
+        float scale = Math.max((float) width / source.getWidth(), (float) height / source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((width - (source.getWidth() * scale)) / 2, (height - (source.getHeight() * scale)) / 2);
+
+        new Canvas(bitmap).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG));
+        return bitmap;
+    }
+
+    /**
+     * Calculates how much an image can be subsampled while it is decoded, so that it
+     * still covers the requested size.
+     *
+     * @param sourceWidth  the width of the encoded image
+     * @param sourceHeight the height of the encoded image
+     * @param width        the width that the image will be scaled to
+     * @param height       the height that the image will be scaled to
+     * @return the largest power of two that the image can be divided by
+     */
+    public static int getSampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= width && sourceHeight / (sampleSize * 2) >= height)
+            sampleSize *= 2;
+
+        return sampleSize;
+    }
+
+    /**
+     * Creates a mutable bitmap, taken from a pool if there is one.
+     *
+     * @param pool   the pool to take the bitmap from, or null to allocate a new one
+     * @param width  the width of the bitmap
+     * @param height the height of the bitmap
+     * @param config the config of the bitmap
+     * @return a transparent bitmap
+     */
+    public static Bitmap createBitmap(@Nullable BitmapPool pool, int width, int height, Bitmap.Config config) {
+        if (pool != null)
+            return pool.get(width, height, config);
+        else return Bitmap.createBitmap(width, height, config);
+    }
 }
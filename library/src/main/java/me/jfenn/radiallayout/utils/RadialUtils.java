@@ -1,13 +1,15 @@
 package me.jfenn.radiallayout.utils;
 
+import me.jfenn.radiallayout.engine.RadialMath;
+
 public class RadialUtils {
 
     public static int getRadius(int row, float itemRadius, float itemSeparation) {
-        return ConversionUtils.dpToPx(((row + 1) * (itemRadius * 2 + itemSeparation)) + 12);
+        return RadialMath.getRowRadius(ConversionUtils.getDensity(), row, itemRadius, itemSeparation);
     }
 
     public static int getCircumference(int row, float itemRadius, float itemSeparation) {
-        return (int) (2 * Math.PI * getRadius(row, itemRadius, itemSeparation));
+        return RadialMath.getRowCircumference(ConversionUtils.getDensity(), row, itemRadius, itemSeparation);
     }
 
 }